@@ -0,0 +1,46 @@
+package crypto;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mesure JMH de la construction d'un objet Adfgvx (validation des clés et génération
+ * des tables) selon la longueur de la clé de transposition.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdfgvxConstructorJmh {
+
+	@Param({"1", "6", "26"})
+	public int keyLength;
+
+	private String transpositionKey;
+
+	/**
+	 * Prépare la clé de transposition de la longueur demandée.
+	 */
+	@Setup
+	public void setup() {
+		transpositionKey = AdfgvxJmh.TRANSPOSITION_LETTERS.substring(0, keyLength);
+	}
+
+	@Benchmark
+	public Adfgvx construct() {
+		return new Adfgvx(AdfgvxJmh.SUBSTITUTION_KEY, transpositionKey);
+	}
+}
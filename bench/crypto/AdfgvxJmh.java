@@ -0,0 +1,127 @@
+package crypto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mesures JMH du chiffrement et du déchiffrement selon la taille du message,
+ * la longueur de la clé de transposition et la nature du texte (ASCII ou accentué).
+ * Les résultats sont retournés à JMH, qui les consomme dans un Blackhole.
+ * La classe imbriquée SymbolFilter compare le filtre scalaire et le noyau vectoriel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdfgvxJmh {
+
+	static final String SUBSTITUTION_KEY = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+	//Clé de transposition de 26 lettres dont les premières forment BRUTES
+	static final String TRANSPOSITION_LETTERS = "BRUTESACDFGHIJKLMNOPQVWXYZ";
+	private static final String ASCII_TEXT = "DEMANDE RENFORTS D'URGENCE ";
+	private static final String ACCENTED_TEXT = "Où êtes-vous ? Reçu l'ordre d'évacuer à l'aube, près de l'église. ";
+
+	@Param({"16", "1024", "65536", "1048576", "16777216"})
+	public int size;
+
+	@Param({"1", "6", "26"})
+	public int keyLength;
+
+	@Param({"ascii", "accented"})
+	public String input;
+
+	private Adfgvx cypher;
+	private String message;
+	private String encrypted;
+
+	/**
+	 * Prépare l'objet Adfgvx, le message de la taille demandée et son cryptogramme.
+	 */
+	@Setup
+	public void setup() {
+		cypher = new Adfgvx(SUBSTITUTION_KEY, TRANSPOSITION_LETTERS.substring(0, keyLength));
+		String text = input.equals("ascii") ? ASCII_TEXT : ACCENTED_TEXT;
+		StringBuilder sb = new StringBuilder(size + text.length());
+		while(sb.length() < size) {
+			sb.append(text);
+		}
+		sb.setLength(size);
+		message = sb.toString();
+		encrypted = cypher.encrypt(message);
+	}
+
+	@Benchmark
+	public String encrypt() {
+		return cypher.encrypt(message);
+	}
+
+	@Benchmark
+	public String decrypt() {
+		return cypher.decrypt(encrypted);
+	}
+
+	/**
+	 * Mesures du filtre du texte à déchiffrer, scalaire (Adfgvx.removeIllegalCharacters)
+	 * et vectoriel (AdfgvxVectorFilter), sur un cryptogramme au format de encrypt.
+	 * Les mesures sont lancées dans une JVM chargeant le module jdk.incubator.vector, avec
+	 * un tas assez grand pour le cryptogramme du plus long message.
+	 */
+	@State(Scope.Benchmark)
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	@Warmup(iterations = 5, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Xmx3g"})
+	public static class SymbolFilter {
+
+		//Jusqu'à 100 Mo de texte, soit un cryptogramme d'environ 240 Mo
+		@Param({"16", "1024", "65536", "1048576", "104857600"})
+		public int size;
+
+		private AdfgvxVectorFilter vectorFilter;
+		private byte[] text;
+		private byte[] symbols;
+
+		/**
+		 * Prépare le noyau vectoriel et le cryptogramme d'un message de la taille demandée.
+		 */
+		@Setup
+		public void setup() {
+			vectorFilter = new AdfgvxVectorFilter();
+			StringBuilder sb = new StringBuilder(size + ASCII_TEXT.length());
+			while(sb.length() < size) {
+				sb.append(ASCII_TEXT);
+			}
+			sb.setLength(size);
+			String cryptogram = new Adfgvx(SUBSTITUTION_KEY, "BRUTES").encrypt(sb.toString());
+			text = cryptogram.getBytes(StandardCharsets.ISO_8859_1);
+			symbols = new byte[text.length];
+		}
+
+		@Benchmark
+		public byte[] scalar() {
+			Adfgvx.removeIllegalCharacters(text, text.length, symbols);
+			return symbols;
+		}
+
+		@Benchmark
+		public byte[] vector() {
+			vectorFilter.filterSymbols(text, text.length, symbols);
+			return symbols;
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package crypto;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Lance toutes les mesures JMH de Adfgvx avec le profileur gc, qui ajoute le nombre
+ * d'octets alloués par opération (gc.alloc.rate.norm), et écrit les résultats en JSON
+ * pour suivre les régressions d'une version à l'autre.
+ */
+public class AdfgvxJmhRunner {
+
+	/**
+	 * Lance les mesures.
+	 *
+	 * @param args le fichier JSON des résultats, jmh-result.json par défaut, puis
+	 * l'expression régulière des mesures à lancer (optionnelle)
+	 * @throws RunnerException si une mesure échoue
+	 */
+	public static void main(String[] args) throws RunnerException {
+		String resultFile = args.length > 0 ? args[0] : "jmh-result.json";
+		String include = args.length > 1 ? args[1] : "crypto\\.Adfgvx.*Jmh";
+		Options options = new OptionsBuilder()
+				.include(include)
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON)
+				.result(resultFile)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,21 @@
+#!/bin/sh
+# Compile et lance les mesures JMH de crypto.Adfgvx.
+#
+# Les jars de JMH ne sont pas fournis : JMH_LIB doit désigner un dossier contenant
+# jmh-core, jmh-generator-annprocess, jopt-simple et commons-math3
+# (par défaut bench/lib). Le processeur d'annotations de JMH génère les classes
+# de mesure pendant la compilation. Le noyau vectoriel (src-vector) est compilé avec
+# le module jdk.incubator.vector pour la comparaison des filtres de AdfgvxJmh.SymbolFilter ;
+# les autres mesures gardent le filtre scalaire, leur JVM ne chargeant pas le module.
+#
+# Usage : bench/run-jmh.sh [fichier JSON des résultats] [expression régulière des mesures]
+set -e
+cd "$(dirname "$0")/.."
+JMH_LIB=${JMH_LIB:-bench/lib}
+CLASSPATH=$(echo "$JMH_LIB"/*.jar | tr ' ' ':')
+OUT=bin-bench
+rm -rf "$OUT"
+mkdir -p "$OUT"
+javac -encoding UTF-8 --add-modules jdk.incubator.vector -cp "$CLASSPATH" -d "$OUT" \
+	$(find src/crypto src-vector bench/crypto -name "*.java")
+java -cp "$OUT:$CLASSPATH" crypto.AdfgvxJmhRunner "$@"
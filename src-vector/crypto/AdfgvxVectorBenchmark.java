@@ -0,0 +1,79 @@
+package crypto;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Comparaison du filtre scalaire et du noyau vectoriel du texte à déchiffrer sur des
+ * cryptogrammes de 1 Ko, 1 Mo et 100 Mo, puis mesure de decrypt avec le filtre chargé
+ * par Adfgvx. À lancer avec {@code --add-modules jdk.incubator.vector}.
+ */
+public class AdfgvxVectorBenchmark {
+
+	private static final String SUBSTITUTION_KEY = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+	private static final String TRANSPOSITION_KEY = "BRUTES";
+	private static final int[] SIZES = {1 << 10, 1 << 20, 100 << 20};
+	private static final long BYTES_PER_SIZE = 1L << 31;
+
+	/**
+	 * Retourne un cryptogramme d'au moins la taille demandée, au format de encrypt :
+	 * des groupes de 5 lettres séparés par des tirets.
+	 * @param cypher l'objet Adfgvx
+	 * @param size la taille minimale du cryptogramme en octets
+	 * @return le cryptogramme
+	 */
+	private static String cryptogram(Adfgvx cypher, int size) {
+		StringBuilder text = new StringBuilder(size / 2);
+		while(text.length() < size / 2) {
+			text.append("DEMANDE RENFORTS D'URGENCE ");
+		}
+		return cypher.encrypt(text.toString());
+	}
+
+	/**
+	 * Filtre le cryptogramme plusieurs fois avec un filtre et affiche le meilleur débit obtenu.
+	 * @param label le nom du filtre
+	 * @param filter le filtre
+	 * @param text les caractères du cryptogramme
+	 * @param symbols le tableau des positions
+	 */
+	private static void measure(String label, AdfgvxSymbolFilter filter, byte[] text, byte[] symbols) {
+		int repeatCount = (int) Math.max(3, BYTES_PER_SIZE / text.length);
+		long checksum = 0;
+		long best = Long.MAX_VALUE;
+		//Préchauffage pour laisser le JIT compiler le filtre
+		for(int i = 0; i < repeatCount; ++i) {
+			checksum += filter.filterSymbols(text, text.length, symbols);
+		}
+		for(int round = 0; round < 5; ++round) {
+			long time = System.nanoTime();
+			for(int i = 0; i < repeatCount; ++i) {
+				checksum += filter.filterSymbols(text, text.length, symbols);
+			}
+			best = Math.min(best, (System.nanoTime() - time) / repeatCount);
+		}
+		System.out.printf("%-24s %12.1f us %10.1f MB/s  (%d)%n",
+				label, best / 1e3, text.length / (double) (1 << 20) * 1e9 / best, checksum);
+	}
+
+	/**
+	 * Lance les mesures.
+	 *
+	 * @param args non utilisés
+	 */
+	public static void main(String[] args) {
+		Adfgvx cypher = new Adfgvx(SUBSTITUTION_KEY, TRANSPOSITION_KEY);
+		AdfgvxSymbolFilter scalar = Adfgvx::removeIllegalCharacters;
+		AdfgvxSymbolFilter vector = new AdfgvxVectorFilter();
+		for(int size : SIZES) {
+			String cryptogram = cryptogram(cypher, size);
+			byte[] text = cryptogram.getBytes(StandardCharsets.ISO_8859_1);
+			byte[] symbols = new byte[text.length];
+			System.out.println(">>> FILTER - " + text.length + " bytes");
+			measure("scalar", scalar, text, symbols);
+			measure("vector", vector, text, symbols);
+			long time = System.nanoTime();
+			cypher.decrypt(cryptogram);
+			System.out.printf("%-24s %12.1f us%n", "decrypt (first call)", (System.nanoTime() - time) / 1e3);
+		}
+	}
+}
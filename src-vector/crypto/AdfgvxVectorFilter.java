@@ -0,0 +1,103 @@
+package crypto;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Noyau vectoriel du filtre du texte à déchiffrer, avec l'API Vector incubée
+ * (jdk.incubator.vector). Il est dans un dossier source séparé, src-vector, pour que
+ * le reste du projet compile sans le module : pour l'utiliser, compiler ce dossier avec
+ * {@code javac --add-modules jdk.incubator.vector} et lancer la JVM avec
+ * {@code --add-modules jdk.incubator.vector}. Sinon Adfgvx utilise le filtre scalaire.
+ *
+ * Chaque vecteur de caractères est comparé aux six lettres A, D, F, G, V et X pour obtenir
+ * en une fois la position dans ADFGVX de chaque caractère et le masque des caractères
+ * valides. Dans un cryptogramme au format de encrypt, un caractère sur six est un tiret :
+ * le masque ne dépend alors que de la position du vecteur modulo 6, et les positions
+ * valides sont rassemblées par un réarrangement précalculé pour cette position. Pour tout
+ * autre masque, les positions valides sont recopiées une à une.
+ */
+final class AdfgvxVectorFilter implements AdfgvxSymbolFilter {
+
+	private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+	//Longueur d'un groupe de lettres suivi de son tiret dans le format de encrypt
+	private static final int GROUP_PERIOD = 6;
+
+	//Pour chaque position modulo 6 du vecteur : masque des caractères valides attendu,
+	//nombre de ces caractères et réarrangement qui les rassemble au début du vecteur
+	private final VectorMask<Byte>[] groupMasks;
+	private final int[] groupCounts;
+	private final VectorShuffle<Byte>[] groupShuffles;
+
+	/**
+	 * Précalcule les masques et les réarrangements du format de encrypt.
+	 */
+	//Pas de tableau générique : les tableaux de VectorMask et de VectorShuffle sont bruts
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	AdfgvxVectorFilter() {
+		int laneCount = SPECIES.length();
+		this.groupMasks = new VectorMask[GROUP_PERIOD];
+		this.groupCounts = new int[GROUP_PERIOD];
+		this.groupShuffles = new VectorShuffle[GROUP_PERIOD];
+		for(int phase = 0; phase < GROUP_PERIOD; ++phase) {
+			boolean[] validLanes = new boolean[laneCount];
+			int[] sourceLanes = new int[laneCount];
+			int count = 0;
+			for(int lane = 0; lane < laneCount; ++lane) {
+				if((phase + lane) % GROUP_PERIOD != GROUP_PERIOD - 1) {
+					validLanes[lane] = true;
+					sourceLanes[count] = lane;
+					++count;
+				}
+			}
+			this.groupMasks[phase] = VectorMask.fromArray(SPECIES, validLanes, 0);
+			this.groupCounts[phase] = count;
+			this.groupShuffles[phase] = VectorShuffle.fromArray(SPECIES, sourceLanes, 0);
+		}
+	}
+
+	@Override
+	public int filterSymbols(byte[] text, int length, byte[] symbols) {
+		int laneCount = SPECIES.length();
+		byte[] lanes = new byte[laneCount];
+		int count = 0;
+		int i = 0;
+		//Les positions sont écrites derrière ou sur le vecteur lu : symbols peut être text lui-même
+		for(int bound = SPECIES.loopBound(length); i < bound; i += laneCount) {
+			ByteVector chars = ByteVector.fromArray(SPECIES, text, i);
+			ByteVector index = ByteVector.broadcast(SPECIES, (byte) -1)
+					.blend((byte) 0, chars.eq((byte) 'A'))
+					.blend((byte) 1, chars.eq((byte) 'D'))
+					.blend((byte) 2, chars.eq((byte) 'F'))
+					.blend((byte) 3, chars.eq((byte) 'G'))
+					.blend((byte) 4, chars.eq((byte) 'V'))
+					.blend((byte) 5, chars.eq((byte) 'X'));
+			VectorMask<Byte> valid = index.compare(VectorOperators.GE, (byte) 0);
+			int phase = i % GROUP_PERIOD;
+			//Pas de VectorMask.toLong, qui n'est pas compilé en instructions vectorielles par le JDK 17
+			if(valid.eq(groupMasks[phase]).allTrue()) {
+				index.rearrange(groupShuffles[phase]).intoArray(symbols, count);
+				count += groupCounts[phase];
+			}else {
+				index.intoArray(lanes, 0);
+				for(byte symbol : lanes) {
+					if(symbol >= 0) {
+						symbols[count] = symbol;
+						++count;
+					}
+				}
+			}
+		}
+		for(; i < length; ++i) {
+			int symbol = Adfgvx.adfgvxIndex(text[i] & 0xFF);
+			if(symbol >= 0) {
+				symbols[count] = (byte) symbol;
+				++count;
+			}
+		}
+		return count;
+	}
+}
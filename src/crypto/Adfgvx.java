@@ -1,23 +1,89 @@
 package crypto;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 //import java.util.Random;
 
-public class Adfgvx {
+/**
+ * ADFGVX cipher for a given substitution key and transposition key.
+ * 
+ * Instances are immutable: the keys and the tables derived from them are computed
+ * once by the constructor and never modified afterwards, and every method only uses
+ * buffers local to the call. An instance can therefore be shared by any number of
+ * threads without synchronization.
+ */
+public final class Adfgvx {
 	
+	/**
+	 * Number of characters in each group of the cryptogram, unless set otherwise with
+	 * {@link #withGrouping(int, char)}.
+	 */
+	public static final int DEFAULT_GROUP_SIZE = 5;
+	/**
+	 * Character written between the groups of the cryptogram, unless set otherwise with
+	 * {@link #withGrouping(int, char)}.
+	 */
+	public static final char DEFAULT_SEPARATOR = '-';
+	/**
+	 * Largest number of cleaned characters enciphered in each block (one transposition
+	 * grid) by {@link #encrypt(Reader, Writer)}, see {@link #getStreamBlockLength()},
+	 * and the largest block accepted by {@link #decrypt(ReadableByteChannel, WritableByteChannel)}.
+	 */
+	public static final int STREAM_BLOCK_LENGTH = 4096;
+	/**
+	 * Size of the windows through which {@link #encryptFile(Path, Path)} maps the files.
+	 */
+	public static final int MAP_WINDOW_SIZE = 1 << 26;
+	/**
+	 * Number of texts handled by each fork-join task of {@link #encryptParallel(List)}
+	 * and {@link #decryptParallel(List)}.
+	 */
+	public static final int PARALLEL_SLICE_LENGTH = 256;
 	private final char[] ADFGVX = {'A','D','F','G','V','X'};
 	private final char[] KEY_CHARS = {'0','1','2','3','4','5','6','7','8','9',
 			'A','B','C','D','E','F','G','H','I','J','K','L','M',
 			'N','O','P','Q','R','S','T','U','V','W','X','Y','Z'};
-	private final Map<String, Character> decryptMap;
-	private final Map<Character, String> encryptMap;
-	private final char[] transpositionKey;
-	private final char[] sortedTranspKey;
-	//private final Random rand;
+	//Tables de substitution et de transposition, remplies par le constructeur et jamais modifiées ensuite
+	private final AdfgvxKeyTables keys;
+	//Position dans ADFGVX de chaque caractère ASCII, indexé par son code, ou -1 s'il n'en fait pas partie
+	private static final byte[] ADFGVX_INDEX = generateAdfgvxIndex();
+	//Filtre du texte à déchiffrer : le noyau vectoriel s'il est disponible, sinon removeIllegalCharacters
+	private static final AdfgvxSymbolFilter SYMBOL_FILTER = loadSymbolFilter();
+	//Profil de normalisation du texte à chiffrer
+	private final AdfgvxNormalization normalization;
+	//Nombre de caractères de chaque groupe du cryptogramme, Integer.MAX_VALUE sans groupes :
+	//aucun groupe n'est alors complet et aucun séparateur n'est écrit
+	private final int groupSize;
+	//Caractère écrit entre les groupes du cryptogramme
+	private final char separator;
+	//Mode de remplissage de la dernière rangée du tableau de transposition
+	private final AdfgvxPadding padding;
+	//Mesures des opérations, null si elles sont désactivées
+	private final AdfgvxMetrics metrics;
 
 	//Test du prof: Performance OK mais soucis dans les tests
 
@@ -36,109 +102,376 @@ public class Adfgvx {
 	 * @param transpositionKey la clé de transposition
 	 */
 	public Adfgvx(String substitutionKey, String transpositionKey) {
-		if(!substitutionKeyIsValid(substitutionKey) || !transpositionKeyIsValid(transpositionKey)) {
+		checkIsNull(substitutionKey);
+		checkIsNull(transpositionKey);
+		this.keys = new AdfgvxKeyTables(transpositionKey.length());
+		if(!this.generateSubstTable(substitutionKey)) {
+			throw new IllegalArgumentException();
+		}
+		if(!this.generateColumnOrder(transpositionKey)) {
 			throw new IllegalArgumentException();
 		}
-		this.encryptMap = new HashMap<Character,String>();
-		this.decryptMap = new HashMap<String,Character>();
-		this.generateSubstTable(substitutionKey);
-		this.transpositionKey = transpositionKey.toCharArray();
-		this.sortedTranspKey = Arrays.copyOf(this.transpositionKey, this.transpositionKey.length);
-		Arrays.sort(this.sortedTranspKey);
-		//this.rand = new Random();
+		this.normalization = AdfgvxNormalization.DEFAULT;
+		this.groupSize = DEFAULT_GROUP_SIZE;
+		this.separator = DEFAULT_SEPARATOR;
+		this.padding = AdfgvxPadding.CONSTANT;
+		this.metrics = null;
 	}
 	
 	/**
-	 * Lance une NullPointerException si le texte est null.
-	 * @param text le texte
-	 * @throws NullPointerException
+	 * Builds an Adfgvx instance from precompiled keys, without validating and sorting
+	 * the keys again. The instance encrypts and decrypts exactly as the instance the
+	 * schedule was taken from, with the default normalization, format and padding.
+	 * 
+	 * @param schedule the precompiled keys
+	 * @see #getKeySchedule()
 	 */
-	private void checkIsNull(String text) {
-		if(text == null) throw new NullPointerException();
+	public Adfgvx(AdfgvxKeySchedule schedule) {
+		this.keys = new AdfgvxKeyTables(schedule.getKeyLength());
+		this.keys.load(schedule);
+		this.normalization = AdfgvxNormalization.DEFAULT;
+		this.groupSize = DEFAULT_GROUP_SIZE;
+		this.separator = DEFAULT_SEPARATOR;
+		this.padding = AdfgvxPadding.CONSTANT;
+		this.metrics = null;
 	}
 	
 	/**
-	 * Retourne vrai si la clé de substitution est valide, sinon retourne faux.
-	 * La clé de substitution est valide si elle contient tous les chiffres et
-	 * toutes les lettres majuscules sans répétition.
+	 * Construit une copie d'un objet Adfgvx qui partage ses clés et ses tables
+	 * mais normalise le texte à chiffrer, présente ou remplit le cryptogramme ou mesure ses opérations autrement.
+	 * @param cypher l'objet à copier
+	 * @param normalization le profil de normalisation
+	 * @param groupSize le nombre de caractères de chaque groupe, Integer.MAX_VALUE sans groupes
+	 * @param separator le caractère écrit entre les groupes
+	 * @param padding le mode de remplissage
+	 * @param metrics les mesures des opérations, null pour les désactiver
+	 */
+	private Adfgvx(Adfgvx cypher, AdfgvxNormalization normalization, int groupSize, char separator,
+			AdfgvxPadding padding, AdfgvxMetrics metrics) {
+		this.keys = cypher.keys;
+		this.normalization = normalization;
+		this.groupSize = groupSize;
+		this.separator = separator;
+		this.padding = padding;
+		this.metrics = metrics;
+	}
+	
+	/**
+	 * Returns the precompiled keys of this instance, which can be stored and shared
+	 * in a fixed binary format and turned back into an instance with
+	 * {@link #Adfgvx(AdfgvxKeySchedule)}. The normalization, format and padding of the
+	 * instance are not part of the keys.
 	 * 
-	 * @param substitutionKey la clé de substitution
-	 * @return vrai si la clé de substitution est valide, sinon faux
+	 * @return the key schedule of this instance
 	 */
-	private boolean substitutionKeyIsValid(String substitutionKey) {
-		checkIsNull(substitutionKey);
-		return substitutionKey.length() == 36 && this.containsAllDigitsAndLetters(substitutionKey);
+	public AdfgvxKeySchedule getKeySchedule() {
+		byte[] decodeTable = new byte[this.keys.decryptTable.length];
+		for(int digram = 0; digram < decodeTable.length; ++digram) {
+			decodeTable[digram] = (byte) keyCharOffset(this.keys.decryptTable[digram]);
+		}
+		byte[] columnOrder = new byte[this.keys.columnOrder.length];
+		for(int rank = 0; rank < columnOrder.length; ++rank) {
+			columnOrder[rank] = (byte) this.keys.columnOrder[rank];
+		}
+		return new AdfgvxKeySchedule(this.keys.encryptTable.clone(), decodeTable, columnOrder);
 	}
 	
 	/**
-	 * Retourne vrai si la clé de substitution contient tous les chiffres et toutes les lettres. 
+	 * Returns an Adfgvx instance with the same keys as this one, cleaning the text to
+	 * encrypt with the given normalization profile instead of the current one.
+	 * The keys are not validated again and the tables are shared with this instance.
 	 * 
-	 * @param substitutionKey la clé de substitution
-	 * @return vrai si la clé de substitution contient tous les chiffres et toutes les lettres, sinon faux
+	 * @param normalization the normalization profile
+	 * @return the Adfgvx instance using the profile
+	 */
+	public Adfgvx withNormalization(AdfgvxNormalization normalization) {
+		checkIsNull(normalization);
+		return new Adfgvx(this, normalization, this.groupSize, this.separator, this.padding, this.metrics);
+	}
+	
+	/**
+	 * Returns the normalization profile used to clean the text to encrypt.
+	 * 
+	 * @return the normalization profile
+	 */
+	public AdfgvxNormalization getNormalization() {
+		return normalization;
+	}
+	
+	/**
+	 * Returns an Adfgvx instance with the same keys as this one, writing the cryptogram
+	 * in groups of the given number of characters separated by the given character,
+	 * instead of the current format. The cryptograms of every format are accepted by
+	 * {@link #decrypt(String)}, whatever the format of the instance decrypting them.
+	 * 
+	 * A group size of {@link Integer#MAX_VALUE} is rejected: no cryptogram is that long,
+	 * so such groups would never be separated; use {@link #withoutGrouping()} instead.
+	 * 
+	 * @param groupSize the number of characters in each group, from 1 to
+	 * {@code Integer.MAX_VALUE - 1}
+	 * @param separator the character written between the groups, a printable ASCII
+	 * character other than A, D, F, G, V and X
+	 * @return the Adfgvx instance using the format
+	 * @throws IllegalArgumentException if the group size is not positive or is
+	 * {@code Integer.MAX_VALUE}, or if the separator is not valid
 	 */
-	private boolean containsAllDigitsAndLetters(String substitutionKey) {
-		for(char keyChar : this.KEY_CHARS) {
-			if(substitutionKey.indexOf(keyChar) == -1) return false;
+	public Adfgvx withGrouping(int groupSize, char separator) {
+		//Integer.MAX_VALUE est la taille de groupe de withoutGrouping
+		if(groupSize <= 0 || groupSize == Integer.MAX_VALUE) throw new IllegalArgumentException();
+		//Un caractère de contrôle, comme le saut de ligne qui sépare les blocs des flux, est refusé
+		if(separator >= 0x80 || Character.isISOControl(separator) || adfgvxIndex(separator) >= 0) {
+			throw new IllegalArgumentException();
 		}
-		return true;
+		return new Adfgvx(this, this.normalization, groupSize, separator, this.padding, this.metrics);
 	}
 	
 	/**
-	 * Retourne vrai si la clé de transposition est valide, sinon retourne faux.
-	 * La clé de transposition est valide si elle ne contient que des lettres majuscules sans répétitions.
+	 * Returns an Adfgvx instance with the same keys as this one, writing the cryptogram
+	 * as a single run of A, D, F, G, V and X, without any separator. This is the
+	 * fastest format: the cryptogram is written without the pass adding the separators.
 	 * 
-	 * @param transpositionKey
-	 * @return vrai si la clé de transposition est valide, sinon faux
+	 * @return the Adfgvx instance writing the cryptogram without separators
 	 */
-	private boolean transpositionKeyIsValid(String transpositionKey) {
-		checkIsNull(transpositionKey);
-		return transpositionKey.length() > 0 
-				&& containsOnlyUpperCaseLetters(transpositionKey)
-				&& hasNoRepetition(transpositionKey);
+	public Adfgvx withoutGrouping() {
+		return new Adfgvx(this, this.normalization, Integer.MAX_VALUE, this.separator, this.padding, this.metrics);
 	}
 	
 	/**
-	 * Retourne vrai si la clé de transposition ne contient que des lettres majuscules.
-	 * @param transpositionKey la clé de transposition
-	 * @return vrai si la clé de transposition ne contient que des lettres majuscules, sinon faux
+	 * Returns the number of characters in each group of the cryptogram.
+	 * 
+	 * @return the size of the groups, 0 if the cryptogram is written without separators
+	 */
+	public int getGroupSize() {
+		return groupSize != Integer.MAX_VALUE ? groupSize : 0;
+	}
+	
+	/**
+	 * Returns the character written between the groups of the cryptogram.
+	 * 
+	 * @return the separator, meaningless if the cryptogram is written without separators
 	 */
-	private boolean containsOnlyUpperCaseLetters(String transpositionKey) {
-		char[] tpKey = transpositionKey.toCharArray();
-		for(int i=0; i < tpKey.length; ++i) {
-			if(!charInRange(tpKey[i], 'A', 'Z')) return false;
+	public char getSeparator() {
+		return separator;
+	}
+	
+	/**
+	 * Returns an Adfgvx instance with the same keys as this one, filling the last row
+	 * of the transposition grid according to the given padding mode. The default mode,
+	 * {@link AdfgvxPadding#CONSTANT}, fills it with 'X'; the random modes make the
+	 * cryptogram of a text different each time. The padding does not change the length
+	 * of the cryptogram, and the cryptograms of every mode are decrypted the same way.
+	 * 
+	 * @param padding the padding mode
+	 * @return the Adfgvx instance using the padding mode
+	 */
+	public Adfgvx withPadding(AdfgvxPadding padding) {
+		checkIsNull(padding);
+		return new Adfgvx(this, this.normalization, this.groupSize, this.separator, padding, this.metrics);
+	}
+	
+	/**
+	 * Returns the padding mode filling the last row of the transposition grid.
+	 * 
+	 * @return the padding mode
+	 */
+	public AdfgvxPadding getPadding() {
+		return padding;
+	}
+	
+	/**
+	 * Returns an Adfgvx instance with the same keys as this one, recording its
+	 * operations in the given metrics, or recording nothing if the metrics are null.
+	 * The same metrics can be given to any number of instances. Without metrics, the
+	 * only cost left is a check of a null field per phase of an operation.
+	 * 
+	 * @param metrics the metrics recording the operations, null to disable them
+	 * @return the Adfgvx instance using the metrics
+	 */
+	public Adfgvx withMetrics(AdfgvxMetrics metrics) {
+		return new Adfgvx(this, this.normalization, this.groupSize, this.separator, this.padding, metrics);
+	}
+	
+	/**
+	 * Returns the metrics recording the operations of this instance.
+	 * 
+	 * @return the metrics, null if the operations are not recorded
+	 */
+	public AdfgvxMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Lance une NullPointerException si l'objet est null.
+	 * @param object l'objet, par exemple un texte
+	 * @throws NullPointerException
+	 */
+	private void checkIsNull(Object object) {
+		if(object == null) throw new NullPointerException();
+	}
+	
+	/**
+	 * Retourne l'instant du début d'une étape mesurée, 0 si les mesures sont désactivées.
+	 * @return l'instant du début de l'étape, en nanosecondes
+	 */
+	private long startPhase() {
+		return this.metrics != null ? System.nanoTime() : 0;
+	}
+	
+	/**
+	 * Enregistre la durée d'une étape si les mesures sont activées.
+	 * @param phase l'étape
+	 * @param start l'instant du début de l'étape, donné par startPhase ou endPhase
+	 * @return l'instant de la fin de l'étape, début de l'étape suivante
+	 */
+	private long endPhase(AdfgvxMetrics.Phase phase, long start) {
+		if(this.metrics == null) return 0;
+		long end = System.nanoTime();
+		this.metrics.recordPhase(phase, end - start);
+		return end;
+	}
+	
+	/**
+	 * Vérifie que le texte à déchiffrer nettoyé est valide et compte le rejet sinon.
+	 * @param keys les tables des clés
+	 * @param length la longueur du texte à déchiffrer, nettoyé
+	 * @throws IllegalArgumentException si le texte à déchiffrer n'est pas valide
+	 */
+	private void checkTextToDecrypt(AdfgvxKeyTables keys, int length) {
+		if(!textToDecryptIsValid(keys, length)) {
+			if(this.metrics != null) this.metrics.recordRejection();
+			throw new IllegalArgumentException();
+		}
+	}
+	
+	/**
+	 * Compte un chiffrement si les mesures sont activées.
+	 * @param inputLength la longueur du texte chiffré
+	 * @param outputLength la longueur du cryptogramme
+	 */
+	private void recordEncryption(int inputLength, int outputLength) {
+		if(this.metrics != null) this.metrics.recordEncryption(inputLength, outputLength);
+	}
+	
+	/**
+	 * Compte un déchiffrement si les mesures sont activées.
+	 * @param inputLength la longueur du cryptogramme
+	 * @param outputLength la longueur du texte déchiffré
+	 */
+	private void recordDecryption(int inputLength, int outputLength) {
+		if(this.metrics != null) this.metrics.recordDecryption(inputLength, outputLength);
+	}
+	
+	/**
+	 * Valide la clé de substitution et génère les tables de substitution en une seule
+	 * lecture de la clé. La clé est valide si elle contient tous les chiffres et toutes
+	 * les lettres majuscules sans répétition : 36 caractères parmi ceux-ci, tous
+	 * différents, ce que vérifie un masque de 36 bits, un par caractère déjà vu.
+	 * 
+	 * @param substitutionKey la clé de substitution
+	 * @return vrai si la clé de substitution est valide, sinon faux
+	 */
+	private boolean generateSubstTable(String substitutionKey) {
+		if(substitutionKey.length() != KEY_CHARS.length) {
+			return false;
+		}
+		long seenChars = 0;
+		for(int i = 0; i < KEY_CHARS.length; ++i) {
+			char associatedChar = substitutionKey.charAt(i);
+			if(!charInRange(associatedChar, '0', '9') && !charInRange(associatedChar, 'A', 'Z')) {
+				return false;
+			}
+			int offset = keyCharOffset(associatedChar);
+			if((seenChars & 1L << offset) != 0) {
+				return false;
+			}
+			seenChars |= 1L << offset;
+			this.keys.decryptTable[i] = associatedChar;
+			this.keys.encryptTable[offset] = (byte) i;
 		}
 		return true;
 	}
 	
 	/**
-	 * Retourne vrai si la clé de transposition n'a pas de caractères répétés
+	 * Valide la clé de transposition et génère l'ordre de lecture des colonnes du tableau
+	 * de transposition : la i-ème colonne lue est celle de la i-ème lettre de la clé dans
+	 * l'ordre alphabétique. La clé est valide si elle n'est pas vide et ne contient que des
+	 * lettres majuscules sans répétition, ce que vérifie un masque de 26 bits, un par lettre ;
+	 * le rang d'une lettre est alors le nombre de lettres de la clé qui la précèdent dans
+	 * l'alphabet, soit le nombre de bits du masque en dessous du sien.
+	 * 
 	 * @param transpositionKey la clé de transposition
-	 * @return vrai si la clé de transposition n'a pas de caractères répétés, sinon faux
+	 * @return vrai si la clé de transposition est valide, sinon faux
 	 */
-	private boolean hasNoRepetition(String transpositionKey) {
-		Set<Character> uniqueChars = new HashSet<Character>();
-		for(char caracter : transpositionKey.toCharArray()) {
-			if(!uniqueChars.add(caracter)) return false;
+	private boolean generateColumnOrder(String transpositionKey) {
+		int letters = 0;
+		for(char letter : transpositionKey.toCharArray()) {
+			if(!charInRange(letter, 'A', 'Z') || (letters & 1 << (letter - 'A')) != 0) {
+				return false;
+			}
+			letters |= 1 << (letter - 'A');
+		}
+		if(letters == 0) {
+			return false;
+		}
+		for(int colNum = 0; colNum < transpositionKey.length(); ++colNum) {
+			int rank = Integer.bitCount(letters & (1 << (transpositionKey.charAt(colNum) - 'A')) - 1);
+			this.keys.columnRank[colNum] = rank;
+			this.keys.columnOrder[rank] = colNum;
 		}
 		return true;
 	}
 	
 	/**
-	 * Génère la table de substitution des caractères à partir de la clé de substitution.
-	 * 
-	 * @param substitutionKey la clé de substitution
+	 * Retourne la position d'un chiffre ou d'une lettre majuscule dans KEY_CHARS :
+	 * 0 à 9 pour les chiffres, 10 à 35 pour les lettres.
+	 * @param carac le chiffre ou la lettre majuscule
+	 * @return la position du caractère dans KEY_CHARS
+	 */
+	private int keyCharOffset(char carac) {
+		return carac <= '9' ? carac - '0' : carac - 'A' + 10;
+	}
+	
+	/**
+	 * Génère la table des positions dans ADFGVX des caractères ASCII :
+	 * 0 à 5 pour A, D, F, G, V et X, -1 pour les autres caractères.
+	 * @return la position de chaque caractère ASCII, indexée par son code
+	 */
+	private static byte[] generateAdfgvxIndex() {
+		byte[] index = new byte[128];
+		Arrays.fill(index, (byte) -1);
+		String adfgvx = "ADFGVX";
+		for(int i = 0; i < adfgvx.length(); ++i) {
+			index[adfgvx.charAt(i)] = (byte) i;
+		}
+		return index;
+	}
+	
+	/**
+	 * Charge le noyau vectoriel AdfgvxVectorFilter s'il a été compilé (dossier src-vector)
+	 * et que la JVM a été lancée avec --add-modules jdk.incubator.vector, sinon retourne
+	 * le filtre scalaire. La propriété système crypto.adfgvx.vector=false force le filtre scalaire.
+	 * @return le filtre du texte à déchiffrer
 	 */
-	private void generateSubstTable(String substitutionKey) {
-		int i = 0;
-		for(char substRowChar : this.ADFGVX) {
-			for(char substColChar : this.ADFGVX) {
-				String bigram = new String(new char[]{substRowChar, substColChar});
-				char associatedChar = substitutionKey.charAt(i);
-				decryptMap.put(bigram, associatedChar);
-				encryptMap.put(associatedChar, bigram);
-				++i;
+	private static AdfgvxSymbolFilter loadSymbolFilter() {
+		if(Boolean.parseBoolean(System.getProperty("crypto.adfgvx.vector", "true"))) {
+			try {
+				return (AdfgvxSymbolFilter) Class.forName("crypto.AdfgvxVectorFilter").getDeclaredConstructor().newInstance();
+			}catch(ReflectiveOperationException | LinkageError e) {
+				//Noyau absent ou module jdk.incubator.vector non chargé
 			}
 		}
+		return Adfgvx::removeIllegalCharacters;
+	}
+	
+	/**
+	 * Retourne la position d'un caractère parmi A, D, F, G, V et X, ou -1 si le
+	 * caractère n'en fait pas partie, par une lecture dans ADFGVX_INDEX. Le noyau
+	 * vectoriel l'utilise pour les derniers caractères, qui ne remplissent pas un vecteur.
+	 * @param carac le code du caractère
+	 * @return la position du caractère dans ADFGVX, sinon -1
+	 */
+	static int adfgvxIndex(int carac) {
+		return carac < ADFGVX_INDEX.length ? ADFGVX_INDEX[carac] : -1;
 	}
 
 	/*
@@ -148,330 +481,1329 @@ public class Adfgvx {
 	/**
 	 * Encrypts a text into an ADFGVX cryptogram. The cryptogram is formatted with
 	 * an hyphen '-' after each group of 5 characters. Ex: VXVGG-GFDXD-XFDDD
+	 * Another format can be chosen with {@link #withGrouping(int, char)} or
+	 * {@link #withoutGrouping()}.
+	 * 
+	 * Before encryption, letters are put in upper case independently of the default
+	 * locale and their accents are removed; characters other than letters and digits
+	 * are ignored.
 	 * 
 	 * @param textToEncrypt A text to encrypt
 	 * @return the ADFGVX cryptogram
 	 */
 	public String encrypt(String textToEncrypt) {
+		return encrypt(this.keys, textToEncrypt);
+	}
+	
+	/**
+	 * Chiffre un texte comme encrypt(String), avec les tables données.
+	 * La vue d'un AdfgvxKeyStore y passe les tables du locataire sélectionné.
+	 * @param keys les tables des clés
+	 * @param textToEncrypt le texte à chiffrer
+	 * @return le cryptogramme ADFGVX
+	 */
+	String encrypt(AdfgvxKeyTables keys, String textToEncrypt) {
 		checkIsNull(textToEncrypt);
-		char [] arrayToEncrypt = cleanTextToCipher(textToEncrypt);
-		arrayToEncrypt = substituteText(arrayToEncrypt);
-		return transposeText(arrayToEncrypt);
+		int cleanLength = cleanTextLength(textToEncrypt);
+		char[] cypheredText = new char[cypheredTextLength(keys, cleanLength)];
+		encryptText(keys, textToEncrypt, cleanLength, cypheredText, 0);
+		recordEncryption(textToEncrypt.length(), cypheredText.length);
+		return new String(cypheredText);
 	}
 	
 	/**
-	 * Nettoie le texte à chiffrer en le rendant tout en majuscule et 
-	 * en ne concervant que les lettres majuscules et les chiffres
+	 * Encrypts a text into the given array, starting at the given offset, without any
+	 * intermediate allocation. The cryptogram is the one {@link #encrypt(String)} would
+	 * return; its exact length is given by {@link #ciphertextLength(int)} for the length
+	 * of the cleaned text, which is at most the length of the text unless the text holds
+	 * characters that normalize into several letters, such as 'ß'.
 	 * 
-	 * @param text le texte à nettoyer
-	 * @return le text nettoyé
-	 */
-	private char[] cleanTextToCipher(String text) {
-		text = text.toUpperCase();
-		char[] textArray = text.toCharArray();
-		//Utilisation d'un stringbuilder pour avoir une taille max
-		StringBuilder sb = new StringBuilder(textArray.length);//Stream à la place d'un StringBuilder ??
-		for(int i = 0; i < textArray.length; ++i) {
-			char carac = textArray[i];
-			if(charInRange(carac,'A','Z') || charInRange(carac,'0','9')) {
-				sb.append(carac);
-			}else {
-				handleAccents(carac, sb);
-			}
-		}
-		return sb.toString().toCharArray();
+	 * @param textToEncrypt the text to encrypt
+	 * @param dst the array in which to write the ADFGVX cryptogram
+	 * @param offset the position of the cryptogram in the array
+	 * @return the number of characters written
+	 * @throws IndexOutOfBoundsException if the offset is negative or the cryptogram does
+	 * not fit in the array after it; nothing is written then
+	 */
+	public int encryptInto(String textToEncrypt, char[] dst, int offset) {
+		return encryptInto(this.keys, textToEncrypt, dst, offset);
 	}
 	
 	/**
-	 * Vérifie si un caractère est compris entre deux autres caractères.
-	 * @param charToCheck le caractère à vérifier
-	 * @param lowerBound borne inférieure de l'intervalle
-	 * @param UpperBound borne supérieure de l'intervalle
-	 * @return vrai si le caractère est compris dans l'intervalle de caractères, sinon faux
+	 * Chiffre un texte dans un tableau comme encryptInto(String, char[], int), avec les tables données.
+	 * @param keys les tables des clés
+	 * @param textToEncrypt le texte à chiffrer
+	 * @param dst le tableau dans lequel écrire le cryptogramme
+	 * @param offset la position du cryptogramme dans le tableau
+	 * @return le nombre de caractères écrits
 	 */
-	private boolean charInRange(char charToCheck, char lowerBound, char upperBound) {
-		return lowerBound <= charToCheck && charToCheck <= upperBound;
+	int encryptInto(AdfgvxKeyTables keys, String textToEncrypt, char[] dst, int offset) {
+		checkIsNull(textToEncrypt);
+		checkIsNull(dst);
+		int cleanLength = cleanTextLength(textToEncrypt);
+		int cypheredLength = cypheredTextLength(keys, cleanLength);
+		if(offset < 0 || offset > dst.length - cypheredLength) {
+			throw new IndexOutOfBoundsException();
+		}
+		encryptText(keys, textToEncrypt, cleanLength, dst, offset);
+		recordEncryption(textToEncrypt.length(), cypheredLength);
+		return cypheredLength;
 	}
 	
 	/**
-	 * Ajoute au StringBuilder la lettre correspondant à la lettre accentuée
-	 * donnée en argument.
-	 * @param carac le caractère accentué
-	 * @param sb le StringBuilder
+	 * Encrypts a text into the given buffer, from its position, as
+	 * {@link #encryptInto(String, char[], int)} does. The position of the buffer is moved
+	 * after the cryptogram. A buffer without accessible array, such as a read-only or a
+	 * direct buffer, is written through a temporary array.
+	 * 
+	 * @param textToEncrypt the text to encrypt
+	 * @param dst the buffer in which to write the ADFGVX cryptogram
+	 * @return the number of characters written
+	 * @throws BufferOverflowException if the cryptogram does not fit in the buffer; nothing is written then
 	 */
-	private void handleAccents(char carac, StringBuilder sb) {
-		if(charInRange(carac, 'À','Å')) {
-			sb.append('A');
-		}else if(carac == 'Ç') {
-			sb.append('C');
-		}else if(charInRange(carac,'È','Ë')) {
-			sb.append('E');
-		}else if(charInRange(carac,'Ì','Ï')) {
-			sb.append('I');
-		}else if(charInRange(carac,'Ò','Ö')) {
-			sb.append('O');
-		}else if(charInRange(carac,'Ù','Ü')) {
-			sb.append('U');
-		}else if(carac == 'Ÿ') {
-			sb.append('Y');
+	public int encryptInto(String textToEncrypt, CharBuffer dst) {
+		checkIsNull(textToEncrypt);
+		checkIsNull(dst);
+		int cleanLength = cleanTextLength(textToEncrypt);
+		int cypheredLength = cypheredTextLength(this.keys, cleanLength);
+		if(dst.remaining() < cypheredLength) {
+			throw new BufferOverflowException();
 		}
+		if(dst.hasArray()) {
+			encryptText(this.keys, textToEncrypt, cleanLength, dst.array(), dst.arrayOffset() + dst.position());
+			dst.position(dst.position() + cypheredLength);
+		}else {
+			char[] cypheredText = new char[cypheredLength];
+			encryptText(this.keys, textToEncrypt, cleanLength, cypheredText, 0);
+			dst.put(cypheredText);
+		}
+		recordEncryption(textToEncrypt.length(), cypheredLength);
+		return cypheredLength;
+	}
+	
+	/**
+	 * Returns the exact length of the cryptogram of a text whose cleaned form (letters
+	 * and digits only, once normalized) has the given length, separators included.
+	 * 
+	 * @param cleanedPlaintextLength the length of the cleaned text
+	 * @return the length of the ADFGVX cryptogram
+	 * @throws IllegalArgumentException if the length is negative
+	 */
+	public int ciphertextLength(int cleanedPlaintextLength) {
+		if(cleanedPlaintextLength < 0) throw new IllegalArgumentException();
+		return cypheredTextLength(this.keys, cleanedPlaintextLength);
 	}
 	
 	/**
-	 * Substitue le texte à chiffrer en remplaçant les caractères par le digramme correspondant.
+	 * Returns the exact length of the text decrypted from a cryptogram of the given length,
+	 * formatted as {@link #encrypt(String)} formats it. The decrypted text keeps the
+	 * filler characters of the last row, so it may be longer than the cleaned text.
 	 * 
-	 * @param text le texte à substituer
-	 * @return le texte substitué
+	 * @param ciphertextLength the length of the cryptogram, separators included
+	 * @return the length of the decrypted text
+	 * @throws IllegalArgumentException if no cryptogram of this key has this length
 	 */
-	private char[] substituteText(char[] text) {
-		int sbCapacity = text.length * 2;
-		StringBuilder substText = new StringBuilder(sbCapacity);
-		for(int i = 0; i < text.length; ++i) {
-			String substBigram = encryptMap.get(text[i]);
-			substText.append(substBigram);
+	public int plaintextLength(int ciphertextLength) {
+		if(ciphertextLength < 0) throw new IllegalArgumentException();
+		//Longueur du tableau de transposition : un séparateur suit chaque groupe complet sauf le dernier
+		int length = (int) (ciphertextLength - ciphertextLength / (this.groupSize + 1L));
+		if(!textToDecryptIsValid(this.keys, length) || length != 0 && length + (length - 1) / this.groupSize != ciphertextLength) {
+			throw new IllegalArgumentException();
 		}
-		return substText.toString().toCharArray();
+		return length / 2;
 	}
 	
 	/**
-	 * Transpose le texte à chiffrer en utilisant la clé de transposition.
+	 * Retourne la longueur qu'aura le texte une fois nettoyé.
+	 * @param text le texte à nettoyer
+	 * @return la longueur du texte nettoyé
+	 */
+	private int cleanTextLength(String text) {
+		long start = startPhase();
+		char[] cleanChars = this.normalization.cleanChars;
+		char[][] expansions = this.normalization.expansions;
+		int cleanLength = 0;
+		for(int i = 0; i < text.length(); ++i) {
+			char carac = cleanChars[text.charAt(i)];
+			if(carac >= AdfgvxNormalization.EXPANSION_BASE) {
+				cleanLength += expansions[carac - AdfgvxNormalization.EXPANSION_BASE].length;
+			}else if(carac != 0) {
+				++cleanLength;
+			}
+		}
+		endPhase(AdfgvxMetrics.Phase.CLEAN, start);
+		return cleanLength;
+	}
+	
+	/**
+	 * Vérifie si un caractère est compris entre deux autres caractères.
+	 * @param charToCheck le caractère à vérifier
+	 * @param lowerBound borne inférieure de l'intervalle
+	 * @param UpperBound borne supérieure de l'intervalle
+	 * @return vrai si le caractère est compris dans l'intervalle de caractères, sinon faux
+	 */
+	private static boolean charInRange(char charToCheck, char lowerBound, char upperBound) {
+		return lowerBound <= charToCheck && charToCheck <= upperBound;
+	}
+	
+	/**
+	 * Retourne la longueur du cryptogramme d'un texte nettoyé : le tableau de transposition
+	 * complet plus un séparateur entre chaque groupe de caractères.
 	 * 
-	 * @param text le texte à chiffrer
-	 * @return le texte transposé
+	 * @param keys les tables des clés
+	 * @param cleanLength la longueur du texte nettoyé
+	 * @return la longueur du cryptogramme
 	 */
-	private String transposeText(char[] text) {
-		int colCount = this.transpositionKey.length;
-		int rowCount = (int) Math.ceil((double)text.length / colCount);
-		
-		Map<Character,char[]> tpKeyMap = generateTranspositionKeyMap(rowCount);
-		fillEncryptTpArray(tpKeyMap, text, rowCount, colCount);
-		
-		return readEncryptTpArray(tpKeyMap, rowCount, colCount);
+	private int cypheredTextLength(AdfgvxKeyTables keys, int cleanLength) {
+		int colCount = keys.columnOrder.length;
+		int rowCount = (cleanLength * 2 + colCount - 1) / colCount;
+		int tpArraySize = rowCount * colCount;
+		return tpArraySize == 0 ? 0 : tpArraySize + (tpArraySize - 1) / this.groupSize;
 	}
 	
 	/**
-	 * Génère la map des colonnes du tableau de transposition.
-
-	 * @param rowCount le nombre de rangées du tableau de transposition 
-	 * @param transpoKey la clé de transposition à utiliser
-	 * @return la map des colonnes du tableau de transposition
+	 * Chiffre le texte nettoyé en une seule passe : substitution, transposition et ajout des séparateurs.
+	 * 
+	 * Le caractère d'indice p du texte substitué se trouve à la rangée p / colCount et à la colonne
+	 * p % colCount du tableau de transposition. Sa position dans le texte transposé est donc
+	 * rang(colonne) * rowCount + rangée, à laquelle on ajoute un séparateur par groupe complet
+	 * qui le précède. Chaque symbole est ainsi écrit une seule fois, directement à sa place finale.
+	 * 
+	 * @param keys les tables des clés
+	 * @param cleanText le texte nettoyé
+	 * @param cleanLength la longueur du texte nettoyé
+	 * @param cypheredText le tableau dans lequel écrire le cryptogramme
+	 * @param offset la position du début du cryptogramme dans le tableau
 	 */
-	private Map<Character,char[]> generateTranspositionKeyMap(int rowCount){
-		Map<Character,char[]> tpKeyMap = new HashMap<Character,char[]>();
-		for(char tpKeyChar : this.transpositionKey) {
-			tpKeyMap.put(tpKeyChar, new char[rowCount]);
+	private void encryptCleanText(AdfgvxKeyTables keys, char[] cleanText, int cleanLength, char[] cypheredText, int offset) {
+		long start = startPhase();
+		final int size = this.ADFGVX.length;
+		int colCount = keys.columnOrder.length;
+		int rowCount = (cleanLength * 2 + colCount - 1) / colCount;
+		int row = 0;
+		int colNum = 0;
+		for(int i = 0; i < cleanLength; ++i) {
+			int digram = keys.encryptTable[keyCharOffset(cleanText[i])];
+			cypheredText[offset + cypheredIndex(keys, row, colNum, rowCount)] = this.ADFGVX[digram / size];
+			if(++colNum == colCount) {
+				colNum = 0;
+				++row;
+			}
+			cypheredText[offset + cypheredIndex(keys, row, colNum, rowCount)] = this.ADFGVX[digram % size];
+			if(++colNum == colCount) {
+				colNum = 0;
+				++row;
+			}
 		}
-		return tpKeyMap;
+		start = endPhase(AdfgvxMetrics.Phase.ENCIPHER, start);
+		completeCypheredText(keys, row, colNum, rowCount, cypheredText, offset);
+		endPhase(AdfgvxMetrics.Phase.FORMAT, start);
 	}
 	
 	/**
-	 * Remplis colonne par colonne le tableau de transposition.
+	 * Chiffre le texte en une seule passe, comme encryptCleanText, en le nettoyant au fur
+	 * et à mesure : chaque caractère est lu dans la table du profil de normalisation et
+	 * ses caractères nettoyés sont aussitôt substitués et placés, sans texte nettoyé intermédiaire.
 	 * 
-	 * @param tpMap le tableau de transposition
+	 * @param keys les tables des clés
 	 * @param text le texte à chiffrer
-	 * @param rowCount le nombre de rangées du tableau de transposition
-	 * @param colCount le nombre de colonnes du tableau de transposition
-	 */
-	private void fillEncryptTpArray(Map<Character,char[]> tpMap, char[] text, int rowCount, int colCount) {
-		//Pour chaque colonne
-		for(int colNum = 0; colNum < colCount; ++colNum) {
-			//Récupération de la colonne en fonction de la lettre
-			char[] col = tpMap.get(this.transpositionKey[colNum]);
-			//Remplissage de la colonne avec les caractères du texte substitué
-			for(int i = 0; i < rowCount; ++i) {
-				int nextCharIndex = colNum + i * colCount;
-				if(nextCharIndex < text.length) {
-					col[i] = text[nextCharIndex];
-				}else{
-					col[i] = getRandomFillerChar();
+	 * @param cleanLength la longueur du texte nettoyé, donnée par cleanTextLength
+	 * @param cypheredText le tableau dans lequel écrire le cryptogramme
+	 * @param offset la position du début du cryptogramme dans le tableau
+	 */
+	private void encryptText(AdfgvxKeyTables keys, String text, int cleanLength, char[] cypheredText, int offset) {
+		long start = startPhase();
+		char[] cleanChars = this.normalization.cleanChars;
+		char[][] expansions = this.normalization.expansions;
+		final int size = this.ADFGVX.length;
+		int colCount = keys.columnOrder.length;
+		int rowCount = (cleanLength * 2 + colCount - 1) / colCount;
+		int row = 0;
+		int colNum = 0;
+		for(int i = 0; i < text.length(); ++i) {
+			char carac = cleanChars[text.charAt(i)];
+			if(carac == 0) {
+				continue;
+			}
+			char[] expansion = null;
+			int expansionLength = 1;
+			if(carac >= AdfgvxNormalization.EXPANSION_BASE) {
+				expansion = expansions[carac - AdfgvxNormalization.EXPANSION_BASE];
+				expansionLength = expansion.length;
+			}
+			for(int j = 0; j < expansionLength; ++j) {
+				int digram = keys.encryptTable[keyCharOffset(expansion != null ? expansion[j] : carac)];
+				cypheredText[offset + cypheredIndex(keys, row, colNum, rowCount)] = this.ADFGVX[digram / size];
+				if(++colNum == colCount) {
+					colNum = 0;
+					++row;
+				}
+				cypheredText[offset + cypheredIndex(keys, row, colNum, rowCount)] = this.ADFGVX[digram % size];
+				if(++colNum == colCount) {
+					colNum = 0;
+					++row;
 				}
 			}
 		}
+		start = endPhase(AdfgvxMetrics.Phase.ENCIPHER, start);
+		completeCypheredText(keys, row, colNum, rowCount, cypheredText, offset);
+		endPhase(AdfgvxMetrics.Phase.FORMAT, start);
 	}
 	
 	/**
-	 * Retourne un caractère de remplissage aléatoire parmi A, D, F, G, V et X
+	 * Termine le cryptogramme une fois tous les symboles du texte placés : remplit
+	 * la dernière rangée du tableau de transposition puis ajoute les séparateurs.
 	 * 
-	 * @return un caractère aléatoire parmi A, D, F, G, V, X
+	 * @param keys les tables des clés
+	 * @param row la rangée de la première case libre du tableau de transposition
+	 * @param colNum la colonne de la première case libre
+	 * @param rowCount le nombre de rangées du tableau de transposition
+	 * @param cypheredText le tableau dans lequel est écrit le cryptogramme
+	 * @param offset la position du début du cryptogramme dans le tableau
 	 */
-	private char getRandomFillerChar() {
-		/**int randIndex = this.rand.nextInt(ADFGVX.length);
-		return ADFGVX[randIndex];*/
-		return 'X';
+	private void completeCypheredText(AdfgvxKeyTables keys, int row, int colNum, int rowCount, char[] cypheredText, int offset) {
+		int colCount = keys.columnOrder.length;
+		//Remplissage de la dernière rangée du tableau de transposition
+		if(colNum != 0) {
+			for(; colNum < colCount; ++colNum) {
+				cypheredText[offset + cypheredIndex(keys, row, colNum, rowCount)] = getRandomFillerChar();
+			}
+		}
+		int tpArraySize = rowCount * colCount;
+		int cypheredLength = tpArraySize == 0 ? 0 : tpArraySize + (tpArraySize - 1) / this.groupSize;
+		for(int i = this.groupSize; i < cypheredLength; i += this.groupSize + 1) {
+			cypheredText[offset + i] = this.separator;
+		}
 	}
 	
 	/**
-	 * Lit le tableau de transposition par colonne dans l'ordre alphabétique des lettres de la clé
-	 * pour en obtenir le message transposé.
+	 * Retourne la position dans le cryptogramme, séparateurs compris, de la case
+	 * du tableau de transposition à la rangée et à la colonne données.
 	 * 
-	 * @param tpKeyMap le tableau de transposition
-	 * @param rowCount le nombre de rangées du tableau
-	 * @param colCount le nombre de colonnes du tableau
-	 * @return le message transposé
+	 * @param keys les tables des clés
+	 * @param row la rangée de la case
+	 * @param colNum la colonne de la case
+	 * @param rowCount le nombre de rangées du tableau de transposition
+	 * @return la position de la case dans le cryptogramme
 	 */
-	private String readEncryptTpArray(Map<Character, char[]> tpKeyMap, int rowCount, int colCount) {
-		//Capacité du StringBuilder = nb de caractères dans le tableau + nb de tirets à rajouter entre groupe de 5 caractères
-		int tpArraySize = rowCount * colCount;
-		int separatorNb = tpArraySize/5; 
-		int sbCapacity = tpArraySize + separatorNb;
-		
-		StringBuilder cypheredText = new StringBuilder(sbCapacity);
-		for(char keyChar : this.sortedTranspKey) {
-			char[] column = tpKeyMap.get(keyChar);
-			String colToString = new String(column);
-			cypheredText.append(colToString);
+	private int cypheredIndex(AdfgvxKeyTables keys, int row, int colNum, int rowCount) {
+		int tpIndex = keys.columnRank[colNum] * rowCount + row;
+		//Division par une constante pour le format par défaut, que le JIT remplace par une multiplication
+		if(this.groupSize == DEFAULT_GROUP_SIZE) {
+			return tpIndex + tpIndex / DEFAULT_GROUP_SIZE;
+		}else if(this.groupSize == Integer.MAX_VALUE) {
+			return tpIndex;
 		}
-		return addSeparators(cypheredText.toString());
+		return tpIndex + tpIndex / this.groupSize;
 	}
 	
 	/**
-	 * Ajoute le symbole séparateur entre chaque groupe de 5 caractères du texte.
-	 * @param text le texte qu'il faut séparer en bloc de 5 caractères
+	 * Retourne un caractère de remplissage parmi A, D, F, G, V et X, choisi selon le mode de remplissage
+	 * 
+	 * @return un caractère parmi A, D, F, G, V, X
 	 */
-	private String addSeparators(String text) {
-		final int offset = 5;
-		StringBuilder sb = new StringBuilder();
-		int startIndex;
-		for(startIndex = 0; startIndex < text.length() - offset; startIndex += offset) {
-			sb.append(text.substring(startIndex, startIndex + offset));
-			sb.append("-");
-		}
-		sb.append(text.substring(startIndex, text.length()));
-		return sb.toString();
+	private char getRandomFillerChar() {
+		return ADFGVX[this.padding.nextSymbol()];
 	}
 
 	/**
-	 * Decrypts an ADFGVX cryptogram.
+	 * Decrypts an ADFGVX cryptogram. Any character other than A, D, F, G, V and X,
+	 * such as the separators, is skipped, so the cryptograms of every format are
+	 * accepted in the same single pass.
 	 * 
 	 * @param textToDecrypt An ADFGVX cryptogram
 	 * @return the decrypted text
 	 */
 	public String decrypt(String textToDecrypt) {
+		return decrypt(this.keys, textToDecrypt);
+	}
+	
+	/**
+	 * Déchiffre un cryptogramme comme decrypt(String), avec les tables données.
+	 * @param keys les tables des clés
+	 * @param textToDecrypt le cryptogramme ADFGVX
+	 * @return le texte déchiffré
+	 */
+	String decrypt(AdfgvxKeyTables keys, String textToDecrypt) {
 		checkIsNull(textToDecrypt);
-		char[] text = cleanTextToDecrypt(textToDecrypt);
-		text = invertTranspose(text);
-		return invertSubstitute(text);
+		long start = startPhase();
+		//Les caractères hors ISO-8859-1 deviennent '?' et sont retirés comme les autres
+		byte[] text = textToDecrypt.getBytes(StandardCharsets.ISO_8859_1);
+		int length = SYMBOL_FILTER.filterSymbols(text, text.length, text);
+		checkTextToDecrypt(keys, length);
+		endPhase(AdfgvxMetrics.Phase.VALIDATE, start);
+		byte[] orderedText = new byte[length];
+		invertTranspose(keys, text, length, orderedText);
+		char[] plainText = new char[length / 2];
+		invertSubstitute(keys, orderedText, length, plainText, 0);
+		recordDecryption(textToDecrypt.length(), plainText.length);
+		return new String(plainText);
 	}
 	
 	/**
 	 * Nettoie le texte à déchiffrer et vérifie qu'il est valide.
+	 * @param keys les tables des clés
 	 * @param textToDecrypt le texte à déchiffrer
+	 * @param cleanText le tableau dans lequel écrire la position dans ADFGVX de chaque
+	 * caractère du texte nettoyé, au moins aussi long que le texte
 	 * @throws IllegalArgumentException si le message chiffré n'est pas valide
-	 * @return le texte nettoyé
+	 * @return la longueur du texte nettoyé
 	 */
-	private char[] cleanTextToDecrypt(String textToDecrypt) {
-		char[] cleanText = removeIllegalCharacters(textToDecrypt);
-		if(!textToDecryptIsValid(cleanText)) {
-			throw new IllegalArgumentException();
-		}
-		return cleanText;
+	private int cleanTextToDecrypt(AdfgvxKeyTables keys, String textToDecrypt, byte[] cleanText) {
+		long start = startPhase();
+		int length = removeIllegalCharacters(textToDecrypt, cleanText);
+		checkTextToDecrypt(keys, length);
+		endPhase(AdfgvxMetrics.Phase.VALIDATE, start);
+		return length;
 	}
 	
 	/**
-	 * Nettoie le texte à déchiffrer en retirant les tirets séparateurs.
+	 * Nettoie le texte à déchiffrer en retirant les séparateurs et tout autre
+	 * caractère que A, D, F, G, V et X, reconnus et remplacés par leur position dans
+	 * ADFGVX en une seule lecture dans ADFGVX_INDEX.
 	 * @param textToDecrypt le texte à déchiffré
-	 * @return le texte nettoyé des tirets séparateurs
+	 * @param cleanText le tableau dans lequel écrire la position dans ADFGVX de chaque caractère conservé
+	 * @return la longueur du texte nettoyé
 	 */
-	private char[] removeIllegalCharacters(String textToDecrypt) {
-		char[] text  = textToDecrypt.toCharArray();
-		char[] cleanText = new char[text.length];
+	private int removeIllegalCharacters(String textToDecrypt, byte[] cleanText) {
 		int actualLength = 0;
-		for(int i = 0; i < text.length ; ++i) {
-			if(isInADFGVX(text[i])) {
-				cleanText[actualLength] = text[i];
+		for(int i = 0; i < textToDecrypt.length() ; ++i) {
+			int symbol = adfgvxIndex(textToDecrypt.charAt(i));
+			if(symbol >= 0) {
+				cleanText[actualLength] = (byte) symbol;
 				actualLength++;
 			}
 		}
-		return Arrays.copyOf(cleanText, actualLength);
+		return actualLength;
 	}
 	
 	/**
-	 * Vérifie que le caractère soit parmi les lettres A,D,V,F,G,V et X.
-	 * @param carac le caractère à vérifier
-	 * @return vrai si le caractère est parmi les lettres A,D,V,F,G,V et X, faux sinon
+	 * Version scalaire de AdfgvxSymbolFilter : nettoie le texte à déchiffrer, donné en
+	 * octets ISO-8859-1, comme removeIllegalCharacters le fait pour une chaîne.
+	 * @param text les caractères du texte, un octet par caractère
+	 * @param length le nombre de caractères du texte
+	 * @param symbols le tableau dans lequel écrire la position dans ADFGVX de chaque
+	 * caractère conservé, éventuellement le tableau du texte lui-même
+	 * @return la longueur du texte nettoyé
 	 */
-	private boolean isInADFGVX(char carac) {
-		for(char letter : this.ADFGVX) {
-			if(letter == carac) return true;
+	static int removeIllegalCharacters(byte[] text, int length, byte[] symbols) {
+		int actualLength = 0;
+		for(int i = 0; i < length; ++i) {
+			int symbol = adfgvxIndex(text[i] & 0xFF);
+			if(symbol >= 0) {
+				symbols[actualLength] = (byte) symbol;
+				actualLength++;
+			}
 		}
-		return false;
+		return actualLength;
 	}
 	
 	/**
 	 * Vérifie si le texte à déchiffrer est valide.
-	 * @param text le texte à déchiffrer
+	 * @param keys les tables des clés
+	 * @param length la longueur du texte à déchiffrer, nettoyé
 	 * @return vrai si le texte à déchiffrer est valide, sinon faux
 	 */
-	private boolean textToDecryptIsValid(char[] text) {
-		return text.length % transpositionKey.length == 0;
+	private boolean textToDecryptIsValid(AdfgvxKeyTables keys, int length) {
+		return length % keys.columnOrder.length == 0;
 	}
 	
 	/**
 	 * Inverse la transposition du chiffrage en remettant en ordre les digrammes du message.
-	 * @param text le texte à remettre en ordre
-	 * @return le tableau des digrammes du texte en ordre
+	 * Les colonnes du message chiffré se suivent dans l'ordre alphabétique des lettres de la clé :
+	 * chaque caractère est replacé à la rangée r et la colonne c, soit à l'indice r * colCount + c.
+	 * @param keys les tables des clés
+	 * @param text les positions dans ADFGVX des caractères du texte à remettre en ordre
+	 * @param length la longueur du texte, multiple de la longueur de la clé
+	 * @param orderedText le tableau dans lequel écrire les digrammes du texte en ordre
 	 */
-	private char[] invertTranspose(char[] text) {
-		int colCount = this.sortedTranspKey.length;
-		int rowCount = text.length / colCount;
-		Map<Character, char[]> tpArray = new HashMap<Character, char[]>();
-		fillDecryptTpArray(tpArray, text, rowCount);
-		return readDecryptTpArray(tpArray, rowCount, colCount);
+	private void invertTranspose(AdfgvxKeyTables keys, byte[] text, int length, byte[] orderedText) {
+		long start = startPhase();
+		int colCount = keys.columnOrder.length;
+		int rowCount = length / colCount;
+		int textIndex = 0;
+		for(int colNum : keys.columnOrder) {
+			for(int i = 0; i < rowCount; ++i) {
+				orderedText[i * colCount + colNum] = text[textIndex];
+				++textIndex;
+			}
+		}
+		endPhase(AdfgvxMetrics.Phase.TRANSPOSE, start);
 	}
 	
 	/**
-	 * Remplis les colonnes du tableau de transposition à partir du message chiffré.
-	 * @param tpArray le tableau de transposition à remplir
-	 * @param text le message chiffré
-	 * @param rowCount le nombre de rangées du tableau de transposition
+	 * Substitue les digrammes par leur caractère associés, lus dans decryptTable
+	 * à l'indice rangée * 6 + colonne.
+	 * @param keys les tables des clés
+	 * @param text les positions dans ADFGVX des caractères du texte à substituer
+	 * @param length la longueur du texte
+	 * @param plainText le tableau dans lequel écrire le texte substitué
+	 * @param offset la position du début du texte substitué dans le tableau
+	 * @return la longueur du texte substitué
 	 */
-	private void fillDecryptTpArray(Map<Character, char[]> tpArray, char[] text, int rowCount) {
-		int textIndex = 0;
-		for(char tpKeyChar : this.sortedTranspKey) {
-			char[] column = Arrays.copyOfRange(text, textIndex, textIndex + rowCount);
-			tpArray.put(tpKeyChar, column);
-			textIndex += rowCount;
+	private int invertSubstitute(AdfgvxKeyTables keys, byte[] text, int length, char[] plainText, int offset) {
+		long start = startPhase();
+		final int size = this.ADFGVX.length;
+		int plainLength = length / 2;
+		for(int i = 0; i < plainLength; ++i) {
+			plainText[offset + i] = keys.decryptTable[text[2 * i] * size + text[2 * i + 1]];
 		}
+		endPhase(AdfgvxMetrics.Phase.SUBSTITUTE, start);
+		return plainLength;
 	}
+
+	/*
+	 * BATCHES
+	 */
 	
 	/**
-	 * Lis le tableau de transposition par rangée dans l'ordre de la clé de transposition non-triée.
-	 * @param tpArray le tableau de transposition
-	 * @param rowCount le nombre de rangées du tableau de transposition
-	 * @param colCount le nombre de colonnes du tableau de transposition
-	 * @return le message chiffré remis en ordre
+	 * Encrypts a batch of texts, as {@link #encrypt(String)} would encrypt each of them.
+	 * 
+	 * Every text is cleaned and encrypted in one pass into the same buffer, reused from
+	 * one text to the next, so that the temporary memory allocated for the whole batch
+	 * does not grow with the number of texts.
+	 * 
+	 * @param textsToEncrypt the texts to encrypt
+	 * @return the ADFGVX cryptograms, in the same order as the texts
 	 */
-	private char[] readDecryptTpArray(Map<Character, char[]> tpArray, int rowCount, int colCount) {
-		char[] text = new char[rowCount * colCount];
+	public List<String> encryptBatch(List<String> textsToEncrypt) {
+		checkIsNull(textsToEncrypt);
+		String[] cypheredTexts = new String[textsToEncrypt.size()];
+		char[] cypheredText = new char[0];
+		for(int i = 0; i < cypheredTexts.length; ++i) {
+			String text = textsToEncrypt.get(i);
+			checkIsNull(text);
+			int cleanLength = cleanTextLength(text);
+			int cypheredLength = cypheredTextLength(this.keys, cleanLength);
+			cypheredText = ensureCapacity(cypheredText, cypheredLength);
+			encryptText(this.keys, text, cleanLength, cypheredText, 0);
+			recordEncryption(text.length(), cypheredLength);
+			cypheredTexts[i] = new String(cypheredText, 0, cypheredLength);
+		}
+		return Arrays.asList(cypheredTexts);
+	}
+	
+	/**
+	 * Decrypts a batch of ADFGVX cryptograms, as {@link #decrypt(String)} would decrypt each of them.
+	 * 
+	 * Every cryptogram is cleaned, put back in order and decrypted into the same three
+	 * buffers, reused from one cryptogram to the next, so that the temporary memory
+	 * allocated for the whole batch does not grow with the number of cryptograms.
+	 * 
+	 * @param textsToDecrypt the ADFGVX cryptograms
+	 * @return the decrypted texts, in the same order as the cryptograms
+	 * @throws IllegalArgumentException if one of the cryptograms is not valid
+	 */
+	public List<String> decryptBatch(List<String> textsToDecrypt) {
+		checkIsNull(textsToDecrypt);
+		String[] plainTexts = new String[textsToDecrypt.size()];
+		byte[] text = new byte[0];
+		byte[] orderedText = new byte[0];
+		char[] plainText = new char[0];
+		for(int i = 0; i < plainTexts.length; ++i) {
+			String textToDecrypt = textsToDecrypt.get(i);
+			checkIsNull(textToDecrypt);
+			text = ensureCapacity(text, textToDecrypt.length());
+			int length = cleanTextToDecrypt(this.keys, textToDecrypt, text);
+			orderedText = ensureCapacity(orderedText, length);
+			plainText = ensureCapacity(plainText, length / 2);
+			invertTranspose(this.keys, text, length, orderedText);
+			int plainLength = invertSubstitute(this.keys, orderedText, length, plainText, 0);
+			recordDecryption(textToDecrypt.length(), plainLength);
+			plainTexts[i] = new String(plainText, 0, plainLength);
+		}
+		return Arrays.asList(plainTexts);
+	}
+	
+	/**
+	 * Encrypts a large batch of texts in parallel on the common fork-join pool,
+	 * as {@link #encrypt(String)} would encrypt each of them.
+	 * 
+	 * @param textsToEncrypt the texts to encrypt
+	 * @return the ADFGVX cryptograms, in the same order as the texts
+	 */
+	public List<String> encryptParallel(List<String> textsToEncrypt) {
+		return encryptParallel(textsToEncrypt, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Encrypts a large batch of texts in parallel on the given fork-join pool.
+	 * The batch is split in slices of {@link #PARALLEL_SLICE_LENGTH} texts, each
+	 * encrypted by {@link #encryptBatch(List)} on one of the threads of the pool.
+	 * 
+	 * @param textsToEncrypt the texts to encrypt
+	 * @param pool the pool running the encryption
+	 * @return the ADFGVX cryptograms, in the same order as the texts
+	 */
+	public List<String> encryptParallel(List<String> textsToEncrypt, ForkJoinPool pool) {
+		checkIsNull(textsToEncrypt);
+		checkIsNull(pool);
+		String[] cypheredTexts = new String[textsToEncrypt.size()];
+		pool.invoke(new BatchTask(this, true, textsToEncrypt, cypheredTexts, 0, cypheredTexts.length));
+		return Arrays.asList(cypheredTexts);
+	}
+	
+	/**
+	 * Decrypts a large batch of ADFGVX cryptograms in parallel on the common fork-join pool,
+	 * as {@link #decrypt(String)} would decrypt each of them.
+	 * 
+	 * @param textsToDecrypt the ADFGVX cryptograms
+	 * @return the decrypted texts, in the same order as the cryptograms
+	 * @throws IllegalArgumentException if one of the cryptograms is not valid
+	 */
+	public List<String> decryptParallel(List<String> textsToDecrypt) {
+		return decryptParallel(textsToDecrypt, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Decrypts a large batch of ADFGVX cryptograms in parallel on the given fork-join pool.
+	 * The batch is split in slices of {@link #PARALLEL_SLICE_LENGTH} cryptograms, each
+	 * decrypted by {@link #decryptBatch(List)} on one of the threads of the pool.
+	 * 
+	 * @param textsToDecrypt the ADFGVX cryptograms
+	 * @param pool the pool running the decryption
+	 * @return the decrypted texts, in the same order as the cryptograms
+	 * @throws IllegalArgumentException if one of the cryptograms is not valid
+	 */
+	public List<String> decryptParallel(List<String> textsToDecrypt, ForkJoinPool pool) {
+		checkIsNull(textsToDecrypt);
+		checkIsNull(pool);
+		String[] plainTexts = new String[textsToDecrypt.size()];
+		pool.invoke(new BatchTask(this, false, textsToDecrypt, plainTexts, 0, plainTexts.length));
+		return Arrays.asList(plainTexts);
+	}
+	
+	/**
+	 * Tâche qui chiffre ou déchiffre une tranche d'un lot de textes, en la divisant
+	 * en deux sous-tâches tant qu'elle est plus longue que PARALLEL_SLICE_LENGTH.
+	 */
+	private static final class BatchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Adfgvx cypher;
+		private final boolean encrypt;
+		private final List<String> texts;
+		private final String[] results;
+		private final int start;
+		private final int end;
+		
+		/**
+		 * Construit une tâche pour la tranche [start, end[ du lot.
+		 * @param cypher l'objet Adfgvx à utiliser
+		 * @param encrypt vrai pour chiffrer, faux pour déchiffrer
+		 * @param texts le lot de textes
+		 * @param results le tableau dans lequel écrire les résultats, à la position des textes
+		 * @param start le début de la tranche
+		 * @param end la fin (exclue) de la tranche
+		 */
+		private BatchTask(Adfgvx cypher, boolean encrypt, List<String> texts, String[] results, int start, int end) {
+			this.cypher = cypher;
+			this.encrypt = encrypt;
+			this.texts = texts;
+			this.results = results;
+			this.start = start;
+			this.end = end;
+		}
+		
+		@Override
+		protected void compute() {
+			if(end - start <= PARALLEL_SLICE_LENGTH) {
+				List<String> slice = texts.subList(start, end);
+				List<String> sliceResults = encrypt ? cypher.encryptBatch(slice) : cypher.decryptBatch(slice);
+				for(int i = 0; i < sliceResults.size(); ++i) {
+					results[start + i] = sliceResults.get(i);
+				}
+			}else {
+				int middle = (start + end) >>> 1;
+				invokeAll(new BatchTask(cypher, encrypt, texts, results, start, middle),
+						new BatchTask(cypher, encrypt, texts, results, middle, end));
+			}
+		}
+	}
+
+	/**
+	 * Retourne le tableau s'il a au moins la capacité demandée, sinon un nouveau tableau plus grand.
+	 * @param array le tableau
+	 * @param capacity la capacité minimale
+	 * @return un tableau d'au moins la capacité demandée
+	 */
+	private char[] ensureCapacity(char[] array, int capacity) {
+		if(array.length >= capacity) {
+			return array;
+		}
+		return new char[Math.max(capacity, array.length * 2)];
+	}
+	
+	/**
+	 * Retourne le tableau s'il a au moins la capacité demandée, sinon un nouveau tableau plus grand.
+	 * @param array le tableau
+	 * @param capacity la capacité minimale
+	 * @return un tableau d'au moins la capacité demandée
+	 */
+	private byte[] ensureCapacity(byte[] array, int capacity) {
+		if(array.length >= capacity) {
+			return array;
+		}
+		return new byte[Math.max(capacity, array.length * 2)];
+	}
+
+	/*
+	 * BYTE BUFFERS
+	 */
+	
+	/**
+	 * Encrypts the remaining bytes of a buffer into another buffer, without decoding
+	 * the text into a String. Each byte is read as an ISO-8859-1 character (ASCII is a
+	 * subset of it) and the cryptogram is written in ASCII, exactly as
+	 * {@link #encrypt(String)} would return it for the decoded text. Both buffers may
+	 * be direct buffers, for instance to encrypt data read from a channel.
+	 * 
+	 * The position of the source buffer is moved to its limit and the position of the
+	 * destination buffer is moved after the cryptogram. If the destination buffer is
+	 * too small, nothing is read or written.
+	 * 
+	 * @param src the text to encrypt
+	 * @param dst where to write the ADFGVX cryptogram
+	 * @return the number of bytes written
+	 * @throws BufferOverflowException if the cryptogram does not fit in the destination buffer
+	 */
+	public int encrypt(ByteBuffer src, ByteBuffer dst) {
+		return encrypt(this.keys, src, dst);
+	}
+	
+	/**
+	 * Chiffre les octets restants d'un tampon comme encrypt(ByteBuffer, ByteBuffer), avec les tables données.
+	 * @param keys les tables des clés
+	 * @param src le texte à chiffrer
+	 * @param dst le tampon dans lequel écrire le cryptogramme
+	 * @return le nombre d'octets écrits
+	 */
+	int encrypt(AdfgvxKeyTables keys, ByteBuffer src, ByteBuffer dst) {
+		checkIsNull(src);
+		checkIsNull(dst);
+		long start = startPhase();
+		char[][] latin1CleanChars = this.normalization.latin1CleanChars;
+		int cleanLength = 0;
+		for(int i = src.position(); i < src.limit(); ++i) {
+			cleanLength += latin1CleanChars[src.get(i) & 0xFF].length;
+		}
+		endPhase(AdfgvxMetrics.Phase.CLEAN, start);
+		int cypheredLength = cypheredTextLength(keys, cleanLength);
+		if(dst.remaining() < cypheredLength) {
+			throw new BufferOverflowException();
+		}
+		encryptCleanBytes(keys, src, cleanLength, dst, dst.position());
+		recordEncryption(src.remaining(), cypheredLength);
+		src.position(src.limit());
+		dst.position(dst.position() + cypheredLength);
+		return cypheredLength;
+	}
+	
+	/**
+	 * Chiffre en une seule passe les octets restants du tampon source, nettoyés au fur et
+	 * à mesure de leur lecture, comme le fait encryptCleanText pour un texte déjà nettoyé.
+	 * Les positions des tampons ne sont pas modifiées.
+	 * 
+	 * @param keys les tables des clés
+	 * @param src le tampon contenant le texte à chiffrer
+	 * @param cleanLength la longueur du texte une fois nettoyé
+	 * @param dst le tampon dans lequel écrire le cryptogramme
+	 * @param offset la position du début du cryptogramme dans le tampon
+	 */
+	private void encryptCleanBytes(AdfgvxKeyTables keys, ByteBuffer src, int cleanLength, ByteBuffer dst, int offset) {
+		long start = startPhase();
+		final int size = this.ADFGVX.length;
+		char[][] latin1CleanChars = this.normalization.latin1CleanChars;
+		int colCount = keys.columnOrder.length;
+		int rowCount = (cleanLength * 2 + colCount - 1) / colCount;
+		int row = 0;
 		int colNum = 0;
-		for(char tpKeyChar : this.transpositionKey) {
-			char[] column = tpArray.get(tpKeyChar);
-			for(int i = 0; i < column.length; ++i) {
-				int posInString = i * colCount + colNum;
-				text[posInString] = column[i];
+		for(int i = src.position(); i < src.limit(); ++i) {
+			for(char carac : latin1CleanChars[src.get(i) & 0xFF]) {
+				int digram = keys.encryptTable[keyCharOffset(carac)];
+				dst.put(offset + cypheredIndex(keys, row, colNum, rowCount), (byte) this.ADFGVX[digram / size]);
+				if(++colNum == colCount) {
+					colNum = 0;
+					++row;
+				}
+				dst.put(offset + cypheredIndex(keys, row, colNum, rowCount), (byte) this.ADFGVX[digram % size]);
+				if(++colNum == colCount) {
+					colNum = 0;
+					++row;
+				}
 			}
-			colNum++;
 		}
-		return text;
+		start = endPhase(AdfgvxMetrics.Phase.ENCIPHER, start);
+		//Remplissage de la dernière rangée du tableau de transposition
+		if(colNum != 0) {
+			for(; colNum < colCount; ++colNum) {
+				dst.put(offset + cypheredIndex(keys, row, colNum, rowCount), (byte) getRandomFillerChar());
+			}
+		}
+		int cypheredLength = cypheredTextLength(keys, cleanLength);
+		for(int i = this.groupSize; i < cypheredLength; i += this.groupSize + 1) {
+			dst.put(offset + i, (byte) this.separator);
+		}
+		endPhase(AdfgvxMetrics.Phase.FORMAT, start);
+	}
+	
+	/**
+	 * Decrypts the remaining bytes of a buffer, an ASCII ADFGVX cryptogram, into another
+	 * buffer, without decoding the text into a String. The decrypted text is written in
+	 * ASCII, exactly as {@link #decrypt(String)} would return it. Both buffers may be
+	 * direct buffers.
+	 * 
+	 * The position of the source buffer is moved to its limit and the position of the
+	 * destination buffer is moved after the decrypted text. If the cryptogram is not valid
+	 * or the destination buffer is too small, nothing is read and the content of the
+	 * destination buffer after its position is unspecified.
+	 * 
+	 * @param src the ADFGVX cryptogram
+	 * @param dst where to write the decrypted text
+	 * @return the number of bytes written
+	 * @throws IllegalArgumentException if the cryptogram is not valid
+	 * @throws BufferOverflowException if the decrypted text does not fit in the destination buffer
+	 */
+	public int decrypt(ByteBuffer src, ByteBuffer dst) {
+		return decrypt(this.keys, src, dst);
 	}
 	
 	/**
-	 * Substitue les digrammes par leur caractère associés.
-	 * @param text le texte à substituer
-	 * @return le texte substitué
+	 * Déchiffre les octets restants d'un tampon comme decrypt(ByteBuffer, ByteBuffer), avec les tables données.
+	 * @param keys les tables des clés
+	 * @param src le cryptogramme ADFGVX
+	 * @param dst le tampon dans lequel écrire le texte déchiffré
+	 * @return le nombre d'octets écrits
 	 */
-	private String invertSubstitute(char[] text) {
-		StringBuilder sb = new StringBuilder();
-		for(int i = 0; i < text.length; i += 2) {
-			if(i + 1 < text.length) {
-				char[] nextTwoChar = new char[] {text[i], text[i+1]};
-				String digram = new String(nextTwoChar);
-				sb.append(this.decryptMap.get(digram));
+	int decrypt(AdfgvxKeyTables keys, ByteBuffer src, ByteBuffer dst) {
+		checkIsNull(src);
+		checkIsNull(dst);
+		long start = startPhase();
+		int length = 0;
+		for(int i = src.position(); i < src.limit(); ++i) {
+			if(adfgvxIndex(src.get(i) & 0xFF) >= 0) {
+				++length;
 			}
 		}
-		return sb.toString();
+		checkTextToDecrypt(keys, length);
+		endPhase(AdfgvxMetrics.Phase.VALIDATE, start);
+		int plainLength = length / 2;
+		if(dst.remaining() < plainLength) {
+			throw new BufferOverflowException();
+		}
+		decryptBytes(keys, src, length, dst, dst.position());
+		recordDecryption(src.remaining(), plainLength);
+		src.position(src.limit());
+		dst.position(dst.position() + plainLength);
+		return plainLength;
+	}
+	
+	/**
+	 * Déchiffre le cryptogramme du tampon source directement dans le tampon de destination,
+	 * sans tableau intermédiaire. Chaque octet du texte déchiffré sert d'abord à additionner
+	 * les positions dans ADFGVX de la rangée (multipliée par 6) et de la colonne de son
+	 * digramme, lues dans l'ordre du cryptogramme, puis est remplacé par le caractère associé
+	 * au digramme. Les positions des tampons ne sont pas modifiées.
+	 * 
+	 * @param keys les tables des clés
+	 * @param src le tampon contenant le cryptogramme
+	 * @param length le nombre de lettres A, D, F, G, V et X du cryptogramme
+	 * @param dst le tampon dans lequel écrire le texte déchiffré
+	 * @param offset la position du début du texte déchiffré dans le tampon
+	 */
+	private void decryptBytes(AdfgvxKeyTables keys, ByteBuffer src, int length, ByteBuffer dst, int offset) {
+		long start = startPhase();
+		final int size = this.ADFGVX.length;
+		int colCount = keys.columnOrder.length;
+		int rowCount = length / colCount;
+		int plainLength = length / 2;
+		for(int i = 0; i < plainLength; ++i) {
+			dst.put(offset + i, (byte) 0);
+		}
+		int rank = 0;
+		int row = 0;
+		for(int i = src.position(); i < src.limit(); ++i) {
+			int symbol = adfgvxIndex(src.get(i) & 0xFF);
+			if(symbol == -1) continue;
+			int substIndex = row * colCount + keys.columnOrder[rank];
+			int plainIndex = substIndex / 2;
+			if(plainIndex < plainLength) {
+				int digramPart = substIndex % 2 == 0 ? symbol * size : symbol;
+				dst.put(offset + plainIndex, (byte) (dst.get(offset + plainIndex) + digramPart));
+			}
+			if(++row == rowCount) {
+				row = 0;
+				++rank;
+			}
+		}
+		start = endPhase(AdfgvxMetrics.Phase.TRANSPOSE, start);
+		for(int i = 0; i < plainLength; ++i) {
+			dst.put(offset + i, (byte) keys.decryptTable[dst.get(offset + i)]);
+		}
+		endPhase(AdfgvxMetrics.Phase.SUBSTITUTE, start);
+	}
+
+	/*
+	 * FILES
+	 */
+	
+	/**
+	 * Encrypts a file into another file directly in memory-mapped buffers: the ASCII
+	 * characters of the source file are read in its mapped buffer and each ADFGVX symbol
+	 * is written at its place in the mapped buffer of the target file. Only the non-ASCII
+	 * characters go through a small heap buffer, to be decoded, and the symbols of the
+	 * last block through a heap buffer of at most one block, to be rearranged. Files of any size, including files larger than 2 GB, are mapped one window of
+	 * {@link #MAP_WINDOW_SIZE} bytes at a time.
+	 * 
+	 * The source file is decoded as UTF-8, as {@link #encrypt(InputStream, OutputStream)}
+	 * decodes its input (malformed sequences are dropped), and the target file holds
+	 * exactly what that method would write: blocks of {@link #getStreamBlockLength()}
+	 * cleaned characters, each one enciphered as its own transposition grid and followed
+	 * by a line feed '\n'. The target file can therefore be decrypted with
+	 * {@link #decrypt(ReadableByteChannel, WritableByteChannel)}. The first window of the
+	 * target file is no larger than the longest cryptogram the source file can give.
+	 * 
+	 * @param source the UTF-8 file to encrypt
+	 * @param target the file in which to write the ADFGVX cryptogram, replaced if it exists
+	 * @throws IOException if a file cannot be read, written or mapped
+	 */
+	public void encryptFile(Path source, Path target) throws IOException {
+		checkIsNull(source);
+		checkIsNull(target);
+		try(FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+			FileChannel out = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE,
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			//Chaque octet UTF-8 donne au plus un caractère, qui donne au plus maxExpansion caractères nettoyés
+			int blockLength = getStreamBlockLength();
+			long maxCleanLength = in.size() * this.normalization.maxExpansion;
+			long maxCypheredLength = (maxCleanLength / blockLength + 1) * (cypheredTextLength(this.keys, blockLength) + 1);
+			try(AdfgvxMappedFile.AsciiTarget asciiTarget = new AdfgvxMappedFile.AsciiTarget(out, maxCypheredLength)) {
+				new FileEncryption(asciiTarget).encrypt(in);
+			}
+		}
+	}
+	
+	/**
+	 * Chiffrement d'un fichier projeté en mémoire, découpé en blocs comme par
+	 * encrypt(Reader, Writer), dont chaque symbole est écrit directement à sa place dans
+	 * la fenêtre du fichier cible.
+	 * 
+	 * Un bloc complet remplit son tableau de transposition : son nombre de rangées est connu
+	 * avant la lecture de son texte. Le dernier bloc, s'il est plus court, est d'abord placé
+	 * comme un bloc complet, puis ses symboles sont relus et replacés dans son propre tableau.
+	 */
+	private final class FileEncryption {
+		//Nombre de caractères du tampon dans lequel sont décodées les suites d'octets non ASCII
+		private static final int DECODE_BUFFER_LENGTH = 1024;
+		private final AdfgvxMappedFile.AsciiTarget target;
+		private final char[] cleanChars = normalization.cleanChars;
+		private final char[][] expansions = normalization.expansions;
+		private final int colCount = keys.columnOrder.length;
+		private final int streamBlockLength = getStreamBlockLength();
+		private final int fullRowCount = streamBlockLength * 2 / colCount;
+		private final int cypheredBlockLength = cypheredTextLength(keys, streamBlockLength);
+		//Position dans un bloc complet chiffré, séparateurs compris, de chaque symbole du texte substitué
+		private final int[] symbolOffsets = new int[streamBlockLength * 2];
+		//Fenêtre du fichier cible et position du bloc courant dans cette fenêtre
+		private ByteBuffer window;
+		private int blockOffset;
+		//Caractères nettoyés du bloc courant et caractères lus pour ce bloc, avant nettoyage
+		private int blockLength;
+		private int rawLength;
+		private long start;
+		
+		/**
+		 * Prépare le chiffrement dans le fichier cible, à partir de son début, et calcule
+		 * la place de chaque symbole dans un bloc complet, la même pour tous ces blocs.
+		 * @param target le fichier cible
+		 * @throws IOException si la première fenêtre ne peut être projetée
+		 */
+		private FileEncryption(AdfgvxMappedFile.AsciiTarget target) throws IOException {
+			this.target = target;
+			for(int p = 0; p < this.symbolOffsets.length; ++p) {
+				this.symbolOffsets[p] = cypheredIndex(keys, p / this.colCount, p % this.colCount, this.fullRowCount);
+			}
+			this.window = target.reserve(this.cypheredBlockLength + 1);
+			this.blockOffset = this.window.position();
+		}
+		
+		/**
+		 * Chiffre tout le fichier source, une fenêtre à la fois. Les octets ASCII sont lus
+		 * un à un dans la fenêtre ; chaque suite d'octets non ASCII est décodée en UTF-8.
+		 * Une séquence coupée par la fin d'une fenêtre est décodée depuis la fenêtre
+		 * suivante, qui commence à cette séquence.
+		 * @param in le fichier source, ouvert en lecture
+		 * @throws IOException si une fenêtre ne peut être projetée
+		 */
+		private void encrypt(FileChannel in) throws IOException {
+			long size = in.size();
+			CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			CharBuffer chars = CharBuffer.allocate(DECODE_BUFFER_LENGTH);
+			this.start = startPhase();
+			long windowStart = 0;
+			while(windowStart < size) {
+				MappedByteBuffer source = in.map(FileChannel.MapMode.READ_ONLY, windowStart,
+						Math.min(MAP_WINDOW_SIZE, size - windowStart));
+				int limit = source.limit();
+				boolean lastWindow = windowStart + limit == size;
+				int i = 0;
+				while(i < limit) {
+					byte carac = source.get(i);
+					if(carac >= 0) {
+						appendChar((char) carac);
+						++i;
+						continue;
+					}
+					int runEnd = i + 1;
+					while(runEnd < limit && source.get(runEnd) < 0) {
+						++runEnd;
+					}
+					//Une suite terminée par un octet ASCII ou par la fin du fichier est décodée en entier
+					boolean endOfRun = runEnd < limit || lastWindow;
+					source.limit(runEnd).position(i);
+					CoderResult result;
+					do {
+						chars.clear();
+						result = decoder.decode(source, chars, endOfRun);
+						chars.flip();
+						while(chars.hasRemaining()) {
+							appendChar(chars.get());
+						}
+					}while(result.isOverflow());
+					//Le décodeur UTF-8 n'a pas d'état à vider en fin de texte (flush)
+					decoder.reset();
+					i = source.position();
+					source.limit(limit);
+					if(!endOfRun) break;
+				}
+				windowStart += i;
+			}
+			finish();
+		}
+		
+		/**
+		 * Nettoie un caractère lu et ajoute ses caractères nettoyés au bloc courant.
+		 * @param carac le caractère lu
+		 * @throws IOException si la fenêtre du bloc suivant ne peut être projetée
+		 */
+		private void appendChar(char carac) throws IOException {
+			char cleanChar = this.cleanChars[carac];
+			if(cleanChar >= AdfgvxNormalization.EXPANSION_BASE) {
+				for(char expansionChar : this.expansions[cleanChar - AdfgvxNormalization.EXPANSION_BASE]) {
+					appendCleanChar(expansionChar);
+				}
+			}else if(cleanChar != 0) {
+				appendCleanChar(cleanChar);
+			}
+			++this.rawLength;
+		}
+		
+		/**
+		 * Substitue un caractère nettoyé et écrit ses deux symboles à leur place dans le
+		 * tableau d'un bloc complet. Comme dans encrypt(Reader, Writer), un bloc complet n'est
+		 * terminé qu'avec le caractère nettoyé suivant.
+		 * @param carac le caractère nettoyé
+		 * @throws IOException si la fenêtre du bloc suivant ne peut être projetée
+		 */
+		private void appendCleanChar(char carac) throws IOException {
+			if(this.blockLength == this.streamBlockLength) {
+				this.start = endPhase(AdfgvxMetrics.Phase.ENCIPHER, this.start);
+				endBlock(this.cypheredBlockLength);
+			}
+			final int size = ADFGVX.length;
+			int digram = keys.encryptTable[keyCharOffset(carac)];
+			int symbol = this.blockLength * 2;
+			this.window.put(this.blockOffset + this.symbolOffsets[symbol], (byte) ADFGVX[digram / size]);
+			this.window.put(this.blockOffset + this.symbolOffsets[symbol + 1], (byte) ADFGVX[digram % size]);
+			++this.blockLength;
+		}
+		
+		/**
+		 * Termine le dernier bloc. S'il est plus court qu'un bloc complet, ses symboles, placés
+		 * dans le tableau d'un bloc complet, sont replacés dans le tableau de sa longueur, dont
+		 * la dernière rangée est remplie.
+		 * @throws IOException si l'écriture échoue
+		 */
+		private void finish() throws IOException {
+			if(this.blockLength == 0) return;
+			this.start = endPhase(AdfgvxMetrics.Phase.ENCIPHER, this.start);
+			int cypheredLength = this.cypheredBlockLength;
+			if(this.blockLength < this.streamBlockLength) {
+				int rowCount = (this.blockLength * 2 + this.colCount - 1) / this.colCount;
+				byte[] symbols = new byte[this.blockLength * 2];
+				for(int p = 0; p < symbols.length; ++p) {
+					symbols[p] = this.window.get(this.blockOffset + this.symbolOffsets[p]);
+				}
+				for(int p = 0; p < symbols.length; ++p) {
+					this.window.put(this.blockOffset
+							+ cypheredIndex(keys, p / this.colCount, p % this.colCount, rowCount), symbols[p]);
+				}
+				//Remplissage de la dernière rangée du tableau de transposition
+				int row = symbols.length / this.colCount;
+				if(symbols.length % this.colCount != 0) {
+					for(int colNum = symbols.length % this.colCount; colNum < this.colCount; ++colNum) {
+						this.window.put(this.blockOffset + cypheredIndex(keys, row, colNum, rowCount),
+								(byte) getRandomFillerChar());
+					}
+				}
+				cypheredLength = cypheredTextLength(keys, this.blockLength);
+			}
+			endBlock(cypheredLength);
+		}
+		
+		/**
+		 * Écrit les séparateurs et le saut de ligne du bloc courant, dont tous les symboles
+		 * sont placés, compte son chiffrement et réserve la place du bloc suivant.
+		 * @param cypheredLength la longueur du bloc chiffré, séparateurs compris
+		 * @throws IOException si la fenêtre du bloc suivant ne peut être projetée
+		 */
+		private void endBlock(int cypheredLength) throws IOException {
+			for(int i = groupSize; i < cypheredLength; i += groupSize + 1) {
+				this.window.put(this.blockOffset + i, (byte) separator);
+			}
+			this.window.put(this.blockOffset + cypheredLength, (byte) '\n');
+			this.start = endPhase(AdfgvxMetrics.Phase.FORMAT, this.start);
+			recordEncryption(this.rawLength, cypheredLength);
+			this.window.position(this.blockOffset + cypheredLength + 1);
+			this.window = this.target.reserve(this.cypheredBlockLength + 1);
+			this.blockOffset = this.window.position();
+			this.blockLength = 0;
+			this.rawLength = 0;
+		}
+	}
+
+	/*
+	 * STREAMS
+	 */
+	
+	/**
+	 * Returns the number of cleaned characters enciphered in each block by
+	 * {@link #encrypt(Reader, Writer)}: the largest length up to {@link #STREAM_BLOCK_LENGTH}
+	 * whose transposition grid is full, so that every block but the last one is
+	 * enciphered without filler and decrypts to exactly its text.
+	 * 
+	 * @return the length of the blocks, a multiple of the transposition key length over 2
+	 */
+	public int getStreamBlockLength() {
+		//Le bloc donne 2 * longueur symboles, qui doivent remplir toutes les colonnes
+		int colCount = this.keys.columnOrder.length;
+		int step = colCount % 2 == 0 ? colCount / 2 : colCount;
+		return STREAM_BLOCK_LENGTH - STREAM_BLOCK_LENGTH % step;
+	}
+	
+	/**
+	 * Encrypts a character stream of any size, one block at a time, so that memory
+	 * use does not depend on the size of the input.
+	 * 
+	 * The text is cleaned as in {@link #encrypt(String)} and cut into blocks of
+	 * {@link #getStreamBlockLength()} cleaned characters (the last block may be shorter).
+	 * Each block is enciphered as its own transposition grid and written exactly as
+	 * {@code encrypt} would return it for the text of that block, followed by a line
+	 * feed '\n'. Only the last block may hold filler characters. An empty input
+	 * produces an empty output.
+	 * 
+	 * @param in the text to encrypt
+	 * @param out where to write the ADFGVX cryptogram, one block per line
+	 * @throws IOException if reading or writing fails
+	 */
+	public void encrypt(Reader in, Writer out) throws IOException {
+		checkIsNull(in);
+		checkIsNull(out);
+		char[] cleanChars = this.normalization.cleanChars;
+		char[][] expansions = this.normalization.expansions;
+		int streamBlockLength = getStreamBlockLength();
+		char[] readBuffer = new char[STREAM_BLOCK_LENGTH];
+		char[] block = new char[streamBlockLength];
+		char[] cypheredBlock = new char[cypheredTextLength(this.keys, streamBlockLength) + 1];
+		int blockLength = 0;
+		//Nombre de caractères lus depuis le dernier bloc écrit, comptés comme l'entrée du bloc suivant
+		int rawLength = 0;
+		int readCount;
+		while((readCount = in.read(readBuffer)) != -1) {
+			for(int i = 0; i < readCount; ++i) {
+				char carac = cleanChars[readBuffer[i]];
+				//Un bloc complet n'est écrit qu'avec le caractère nettoyé suivant : les caractères
+				//ignorés à la fin du texte comptent ainsi dans l'entrée du dernier bloc
+				if(carac >= AdfgvxNormalization.EXPANSION_BASE) {
+					for(char expansionChar : expansions[carac - AdfgvxNormalization.EXPANSION_BASE]) {
+						if(blockLength == block.length) {
+							writeEncryptedBlock(block, blockLength, rawLength, cypheredBlock, out);
+							blockLength = 0;
+							rawLength = 0;
+						}
+						block[blockLength] = expansionChar;
+						++blockLength;
+					}
+				}else if(carac != 0) {
+					if(blockLength == block.length) {
+						writeEncryptedBlock(block, blockLength, rawLength, cypheredBlock, out);
+						blockLength = 0;
+						rawLength = 0;
+					}
+					block[blockLength] = carac;
+					++blockLength;
+				}
+				++rawLength;
+			}
+		}
+		if(blockLength > 0) {
+			writeEncryptedBlock(block, blockLength, rawLength, cypheredBlock, out);
+		}
+		out.flush();
+	}
+	
+	/**
+	 * Encrypts an UTF-8 encoded text of any size, one block at a time.
+	 * The cryptogram is written in ASCII, with the block framing described in
+	 * {@link #encrypt(Reader, Writer)}.
+	 * 
+	 * @param in the UTF-8 text to encrypt
+	 * @param out where to write the ADFGVX cryptogram, one block per line
+	 * @throws IOException if reading or writing fails
+	 */
+	public void encrypt(InputStream in, OutputStream out) throws IOException {
+		checkIsNull(in);
+		checkIsNull(out);
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII));
+		encrypt(new InputStreamReader(in, StandardCharsets.UTF_8), writer);
+	}
+	
+	/**
+	 * Chiffre un bloc de texte nettoyé et l'écrit suivi d'un saut de ligne.
+	 * @param block le bloc de texte nettoyé
+	 * @param blockLength la longueur du bloc
+	 * @param rawLength le nombre de caractères lus pour ce bloc, avant nettoyage
+	 * @param cypheredBlock le tableau dans lequel chiffrer le bloc
+	 * @param out où écrire le bloc chiffré
+	 * @throws IOException si l'écriture échoue
+	 */
+	private void writeEncryptedBlock(char[] block, int blockLength, int rawLength, char[] cypheredBlock,
+			Writer out) throws IOException {
+		int cypheredLength = cypheredTextLength(this.keys, blockLength);
+		encryptCleanText(this.keys, block, blockLength, cypheredBlock, 0);
+		recordEncryption(rawLength, cypheredLength);
+		cypheredBlock[cypheredLength] = '\n';
+		out.write(cypheredBlock, 0, cypheredLength + 1);
 	}
 	
+	/**
+	 * Decrypts an ADFGVX cryptogram of any size written with the block framing of
+	 * {@link #encrypt(Reader, Writer)}, one block at a time.
+	 * 
+	 * Blocks are separated by line feeds '\n'. Characters other than A, D, F, G, V and X
+	 * (such as the '-' separators) are skipped while reading. Each block is decrypted
+	 * as {@link #decrypt(String)} would decrypt it and its plaintext is written in ASCII
+	 * as soon as the end of the block is read, right after the plaintext of the previous
+	 * block; a single line feed ends the output. The decrypted text of a stream written by
+	 * {@code encrypt} is thus its cleaned text, followed by the filler of the last block.
+	 * The last block does not need to end with a line feed. Memory use is bounded by the
+	 * size of one block.
+	 * 
+	 * @param in the ADFGVX cryptogram, one block per line
+	 * @param out where to write the decrypted text, followed by a line feed
+	 * @throws IOException if reading or writing fails
+	 * @throws IllegalArgumentException if a block is not a valid cryptogram or holds
+	 * more than {@link #STREAM_BLOCK_LENGTH} encrypted characters
+	 */
+	public void decrypt(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+		checkIsNull(in);
+		checkIsNull(out);
+		int colCount = this.keys.columnOrder.length;
+		int maxBlockLength = (STREAM_BLOCK_LENGTH * 2 + colCount - 1) / colCount * colCount;
+		ByteBuffer readBuffer = ByteBuffer.allocate(STREAM_BLOCK_LENGTH);
+		byte[] block = new byte[maxBlockLength];
+		byte[] orderedBlock = new byte[maxBlockLength];
+		char[] plainBlock = new char[maxBlockLength / 2];
+		ByteBuffer writeBuffer = ByteBuffer.allocate(maxBlockLength / 2 + 1);
+		int blockLength = 0;
+		//Nombre d'octets du bloc lus, séparateurs compris et saut de ligne final exclu
+		int rawLength = 0;
+		long plainLength = 0;
+		while(in.read(readBuffer) != -1) {
+			readBuffer.flip();
+			while(readBuffer.hasRemaining()) {
+				int carac = readBuffer.get() & 0xFF;
+				int symbol = adfgvxIndex(carac);
+				if(carac == '\n') {
+					plainLength += writeDecryptedBlock(block, blockLength, rawLength, orderedBlock, plainBlock,
+							writeBuffer, out);
+					blockLength = 0;
+					rawLength = 0;
+					continue;
+				}
+				++rawLength;
+				if(symbol >= 0) {
+					if(blockLength == maxBlockLength) {
+						if(this.metrics != null) this.metrics.recordRejection();
+						throw new IllegalArgumentException();
+					}
+					block[blockLength] = (byte) symbol;
+					++blockLength;
+				}
+			}
+			readBuffer.clear();
+		}
+		plainLength += writeDecryptedBlock(block, blockLength, rawLength, orderedBlock, plainBlock, writeBuffer, out);
+		if(plainLength > 0) {
+			writeBuffer.clear();
+			writeBuffer.put((byte) '\n');
+			writeBuffer.flip();
+			while(writeBuffer.hasRemaining()) {
+				out.write(writeBuffer);
+			}
+		}
+	}
+	
+	/**
+	 * Decrypts an ADFGVX cryptogram of any size written with the block framing of
+	 * {@link #encrypt(Reader, Writer)}, one block at a time, as
+	 * {@link #decrypt(ReadableByteChannel, WritableByteChannel)} does.
+	 * 
+	 * @param in the ADFGVX cryptogram, one block per line
+	 * @param out where to write the decrypted text, followed by a line feed
+	 * @throws IOException if reading or writing fails
+	 * @throws IllegalArgumentException if a block is not a valid cryptogram or is too long
+	 */
+	public void decrypt(InputStream in, OutputStream out) throws IOException {
+		checkIsNull(in);
+		checkIsNull(out);
+		decrypt(Channels.newChannel(in), Channels.newChannel(out));
+		out.flush();
+	}
+	
+	/**
+	 * Déchiffre un bloc du message chiffré et écrit le texte déchiffré, à la suite de
+	 * celui du bloc précédent. Un bloc vide n'est pas écrit.
+	 * @param block les positions dans ADFGVX des caractères A, D, F, G, V et X du bloc
+	 * @param blockLength la longueur du bloc
+	 * @param rawLength le nombre d'octets lus pour ce bloc
+	 * @param orderedBlock le tableau dans lequel remettre en ordre les digrammes
+	 * @param plainBlock le tableau dans lequel écrire le texte déchiffré
+	 * @param writeBuffer le tampon d'écriture, assez grand pour le texte déchiffré
+	 * @param out où écrire le texte déchiffré
+	 * @return la longueur du texte déchiffré écrit
+	 * @throws IOException si l'écriture échoue
+	 * @throws IllegalArgumentException si le bloc n'est pas valide
+	 */
+	private int writeDecryptedBlock(byte[] block, int blockLength, int rawLength, byte[] orderedBlock,
+			char[] plainBlock, ByteBuffer writeBuffer, WritableByteChannel out) throws IOException {
+		if(blockLength == 0) return 0;
+		checkTextToDecrypt(this.keys, blockLength);
+		invertTranspose(this.keys, block, blockLength, orderedBlock);
+		int plainLength = invertSubstitute(this.keys, orderedBlock, blockLength, plainBlock, 0);
+		recordDecryption(rawLength, plainLength);
+		writeBuffer.clear();
+		for(int i = 0; i < plainLength; ++i) {
+			writeBuffer.put((byte) plainBlock[i]);
+		}
+		writeBuffer.flip();
+		while(writeBuffer.hasRemaining()) {
+			out.write(writeBuffer);
+		}
+		return plainLength;
+	}
+
 
 	/*
 	 * MAIN - TESTS
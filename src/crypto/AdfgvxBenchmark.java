@@ -0,0 +1,242 @@
+package crypto;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Mesures de performance de la classe Adfgvx : temps d'exécution et
+ * mémoire allouée par message chiffré ou déchiffré.
+ */
+public class AdfgvxBenchmark {
+
+	private static final String SUBSTITUTION_KEY = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+	private static final String TRANSPOSITION_KEY = "BRUTES";
+	private static final String MESSAGE = "DEMANDE RENFORTS D'URGENCE";
+	private static final String FRENCH_MESSAGE = "Où êtes-vous ? Reçu l'ordre d'évacuer à l'aube, près de l'église. Très pressé !";
+	private static final int BATCH_SIZE = 1000;
+	private static final int PARALLEL_BATCH_SIZE = 100000;
+	private static final int FILE_SIZE = 64 << 20;
+	private static final int FILE_REPEAT_COUNT = 5;
+	private static final int TENANT_COUNT = 1 << 20;
+
+	private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	/**
+	 * Retourne le nombre d'octets alloués jusqu'à présent par les threads en vie,
+	 * y compris ceux des pools utilisés par les mesures en parallèle.
+	 * @return le nombre d'octets alloués par les threads en vie
+	 */
+	private static long allocatedBytes() {
+		long bytes = 0;
+		for(long threadBytes : THREAD_BEAN.getThreadAllocatedBytes(THREAD_BEAN.getAllThreadIds())) {
+			if(threadBytes > 0) bytes += threadBytes;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Exécute une opération un certain nombre de fois et affiche le temps écoulé
+	 * ainsi que le nombre moyen d'octets alloués par exécution.
+	 * @param label le nom de l'opération
+	 * @param repeatCount le nombre d'exécutions
+	 * @param operation l'opération à mesurer
+	 */
+	private static void measure(String label, int repeatCount, Runnable operation) {
+		measure(label, repeatCount, 1, operation);
+	}
+	
+	/**
+	 * Exécute une opération traitant plusieurs messages un certain nombre de fois et affiche
+	 * le temps écoulé, le débit ainsi que le nombre moyen d'octets alloués par message.
+	 * @param label le nom de l'opération
+	 * @param repeatCount le nombre d'exécutions
+	 * @param messageCount le nombre de messages traités par exécution
+	 * @param operation l'opération à mesurer
+	 */
+	private static void measure(String label, int repeatCount, int messageCount, Runnable operation) {
+		//Préchauffage pour laisser le JIT compiler l'opération
+		for(int i = 0; i < repeatCount / 10; ++i) {
+			operation.run();
+		}
+		long bytes = allocatedBytes();
+		long time = System.nanoTime();
+		for(int i = 0; i < repeatCount; ++i) {
+			operation.run();
+		}
+		long elapsed = System.nanoTime() - time;
+		bytes = allocatedBytes() - bytes;
+		long messages = (long) repeatCount * messageCount;
+		System.out.printf("%-28s %8.2f s %10.1f ns/msg %12.0f msg/s %8.1f B/msg%n",
+				label, elapsed / 1e9, (double) elapsed / messages, messages * 1e9 / elapsed, (double) bytes / messages);
+	}
+
+	/**
+	 * Lance les mesures sur le message d'exemple de l'énoncé.
+	 *
+	 * @param args le nombre de répétitions (optionnel)
+	 * @throws IOException si les fichiers temporaires ne peuvent pas être écrits
+	 */
+	public static void main(String[] args) throws IOException {
+		int repeatCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+		Adfgvx cypher = new Adfgvx(SUBSTITUTION_KEY, TRANSPOSITION_KEY);
+		String encrypted = cypher.encrypt(MESSAGE);
+
+		System.out.println(">>> ADFGVX x " + repeatCount + " - \"" + MESSAGE + "\"");
+		measure("encrypt", repeatCount, () -> cypher.encrypt(MESSAGE));
+		measure("decrypt", repeatCount, () -> cypher.decrypt(encrypted));
+		measure("new Adfgvx", repeatCount, () -> new Adfgvx(SUBSTITUTION_KEY, TRANSPOSITION_KEY));
+		measure("encrypt accents", repeatCount, () -> cypher.encrypt(FRENCH_MESSAGE));
+		Adfgvx frenchCypher = cypher.withNormalization(AdfgvxNormalization.FRENCH);
+		measure("encrypt accents FRENCH", repeatCount, () -> frenchCypher.encrypt(FRENCH_MESSAGE));
+		for(AdfgvxPadding padding : AdfgvxPadding.values()) {
+			Adfgvx paddedCypher = cypher.withPadding(padding);
+			measure("encrypt " + padding, repeatCount, () -> paddedCypher.encrypt(MESSAGE));
+		}
+		Adfgvx measuredCypher = cypher.withMetrics(new AdfgvxMetrics());
+		measure("encrypt metrics", repeatCount, () -> measuredCypher.encrypt(MESSAGE));
+		measure("decrypt metrics", repeatCount, () -> measuredCypher.decrypt(encrypted));
+		
+		List<String> messages = Collections.nCopies(BATCH_SIZE, MESSAGE);
+		List<String> encryptedMessages = Collections.nCopies(BATCH_SIZE, encrypted);
+		int batchCount = Math.max(1, repeatCount / BATCH_SIZE);
+		measure("encryptBatch x " + BATCH_SIZE, batchCount, BATCH_SIZE, () -> cypher.encryptBatch(messages));
+		measure("decryptBatch x " + BATCH_SIZE, batchCount, BATCH_SIZE, () -> cypher.decryptBatch(encryptedMessages));
+		
+		//Passage à l'échelle : 1, 2, 4... threads jusqu'au nombre de processeurs
+		int processors = Runtime.getRuntime().availableProcessors();
+		for(int threads = 1; threads < processors; threads *= 2) {
+			measureParallel(cypher, threads, repeatCount);
+		}
+		measureParallel(cypher, processors, repeatCount);
+		
+		measureFiles(cypher);
+		measureKeyStore(cypher, repeatCount);
+		measureTranspositionSearch();
+	}
+	
+	/**
+	 * Mesure le chiffrement pour des locataires choisis dans un magasin de clés d'un
+	 * million de locataires, par la vue du magasin et par un objet Adfgvx construit
+	 * pour chaque message à partir de la programmation des clés du locataire.
+	 * @param cypher l'objet Adfgvx dont les clés sont données à chaque locataire
+	 * @param repeatCount le nombre de messages à chiffrer
+	 * @throws IOException si le fichier du magasin ne peut pas être écrit
+	 */
+	private static void measureKeyStore(Adfgvx cypher, int repeatCount) throws IOException {
+		Path path = Files.createTempFile("adfgvx", ".keys");
+		try(AdfgvxKeyStore store = new AdfgvxKeyStore(path, TENANT_COUNT)) {
+			AdfgvxKeySchedule schedule = cypher.getKeySchedule();
+			for(int tenant = 0; tenant < TENANT_COUNT; ++tenant) {
+				store.put(tenant, schedule);
+			}
+			System.out.println(">>> ADFGVX KEY STORE - " + TENANT_COUNT + " tenants");
+			AdfgvxKeyStore.View view = store.view();
+			//Pas premier avec le nombre de locataires : chaque message change de locataire et de page
+			int[] tenant = {0};
+			measure("view select/encrypt", repeatCount, () -> {
+				tenant[0] = (tenant[0] + 7919) & TENANT_COUNT - 1;
+				view.select(tenant[0]).encrypt(MESSAGE);
+			});
+			measure("new Adfgvx(schedule)/encrypt", repeatCount, () -> {
+				tenant[0] = (tenant[0] + 7919) & TENANT_COUNT - 1;
+				new Adfgvx(store.get(tenant[0])).encrypt(MESSAGE);
+			});
+		}finally {
+			Files.delete(path);
+		}
+	}
+	
+	/**
+	 * Mesure le nombre d'ordres de colonnes essayés par seconde par la recherche
+	 * exhaustive d'une clé de transposition de 9 lettres (9! ordres).
+	 */
+	private static void measureTranspositionSearch() {
+		String transpositionKey = "CHARGEONS";
+		AdfgvxNgramScorer scorer = new AdfgvxNgramScorer(3, FRENCH_MESSAGE + " " + MESSAGE);
+		AdfgvxTranspositionSearch search = new AdfgvxTranspositionSearch(SUBSTITUTION_KEY, scorer);
+		String cryptogram = new Adfgvx(SUBSTITUTION_KEY, transpositionKey).encrypt(FRENCH_MESSAGE);
+		long candidates = 362880;
+		search.search(cryptogram, transpositionKey.length());
+		long time = System.nanoTime();
+		search.search(cryptogram, transpositionKey.length());
+		long elapsed = System.nanoTime() - time;
+		System.out.println(">>> ADFGVX TRANSPOSITION SEARCH - key of " + transpositionKey.length() + " letters");
+		System.out.printf("%-32s %8.3f s %10.0f candidates/s%n", "search", elapsed / 1e9, candidates * 1e9 / elapsed);
+	}
+	
+	/**
+	 * Mesure le débit du chiffrement d'un fichier par projection en mémoire, comparé à la
+	 * lecture du fichier entier dans une chaîne, à son chiffrement puis à son écriture.
+	 * @param cypher l'objet Adfgvx à utiliser
+	 * @throws IOException si les fichiers temporaires ne peuvent pas être écrits
+	 */
+	private static void measureFiles(Adfgvx cypher) throws IOException {
+		Path source = Files.createTempFile("adfgvx", ".txt");
+		Path target = Files.createTempFile("adfgvx", ".adfgvx");
+		try {
+			StringBuilder text = new StringBuilder(FILE_SIZE);
+			while(text.length() < FILE_SIZE) {
+				text.append(MESSAGE).append(' ');
+			}
+			text.setLength(FILE_SIZE);
+			Files.writeString(source, text, StandardCharsets.UTF_8);
+			System.out.println(">>> ADFGVX FILE - " + (FILE_SIZE >> 20) + " MB");
+			measureFile("readString/encrypt/writeString", () -> {
+				try {
+					Files.writeString(target, cypher.encrypt(Files.readString(source, StandardCharsets.UTF_8)), StandardCharsets.US_ASCII);
+				}catch(IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			measureFile("encryptFile", () -> {
+				try {
+					cypher.encryptFile(source, target);
+				}catch(IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		}finally {
+			Files.delete(source);
+			Files.delete(target);
+		}
+	}
+	
+	/**
+	 * Chiffre plusieurs fois le fichier de mesure et affiche le meilleur débit obtenu.
+	 * @param label le nom de l'opération
+	 * @param operation l'opération à mesurer
+	 */
+	private static void measureFile(String label, Runnable operation) {
+		operation.run();
+		long best = Long.MAX_VALUE;
+		for(int i = 0; i < FILE_REPEAT_COUNT; ++i) {
+			long time = System.nanoTime();
+			operation.run();
+			best = Math.min(best, System.nanoTime() - time);
+		}
+		System.out.printf("%-32s %8.3f s %10.1f MB/s%n", label, best / 1e9, FILE_SIZE / (double) (1 << 20) * 1e9 / best);
+	}
+	
+	/**
+	 * Mesure le chiffrement en parallèle d'un grand lot de messages sur un pool de threads.
+	 * @param cypher l'objet Adfgvx à utiliser
+	 * @param threads le nombre de threads du pool
+	 * @param repeatCount le nombre total de messages à chiffrer
+	 */
+	private static void measureParallel(Adfgvx cypher, int threads, int repeatCount) {
+		List<String> messages = Collections.nCopies(PARALLEL_BATCH_SIZE, MESSAGE);
+		int batchCount = Math.max(1, repeatCount / PARALLEL_BATCH_SIZE);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		measure("encryptParallel " + threads + " thr", batchCount, PARALLEL_BATCH_SIZE,
+				() -> cypher.encryptParallel(messages, pool));
+		pool.shutdown();
+	}
+}
@@ -0,0 +1,175 @@
+package crypto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of Adfgvx instances keyed by their pair of keys, so that a pair of keys
+ * used again does not pay for the validation of the keys and the generation of the tables.
+ *
+ * When the cache is full, the least recently used instance is evicted. The cache is split
+ * into up to 16 segments, each locked and evicted independently, so that threads using
+ * different keys rarely wait for each other; the eviction order is exactly LRU within a
+ * segment. The cache can be used by any number of threads.
+ */
+public final class AdfgvxCache {
+
+	private static final int MAX_SEGMENT_COUNT = 16;
+	private static final int MIN_SEGMENT_SIZE = 256;
+
+	private final Segment[] segments;
+	private final LongAdder hits;
+	private final LongAdder misses;
+	private final LongAdder evictions;
+
+	/**
+	 * Creates an empty cache holding at most the given number of Adfgvx instances.
+	 *
+	 * @param maxSize the maximum number of instances in the cache
+	 * @throws IllegalArgumentException if the maximum size is not positive
+	 */
+	public AdfgvxCache(int maxSize) {
+		if(maxSize <= 0) throw new IllegalArgumentException();
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.evictions = new LongAdder();
+		int segmentCount = Math.max(1, Math.min(MAX_SEGMENT_COUNT, maxSize / MIN_SEGMENT_SIZE));
+		this.segments = new Segment[segmentCount];
+		for(int i = 0; i < segmentCount; ++i) {
+			//Répartition du reste de la division sur les premiers segments
+			int segmentSize = maxSize / segmentCount + (i < maxSize % segmentCount ? 1 : 0);
+			this.segments[i] = new Segment(segmentSize);
+		}
+	}
+
+	/**
+	 * Returns the Adfgvx instance for the given keys, creating it and adding it to the
+	 * cache if it is not already there.
+	 *
+	 * @param substitutionKey the substitution key
+	 * @param transpositionKey the transposition key
+	 * @return the Adfgvx instance for the keys
+	 * @throws NullPointerException if one of the keys is null
+	 * @throws IllegalArgumentException if one of the keys is not valid
+	 */
+	public Adfgvx get(String substitutionKey, String transpositionKey) {
+		if(substitutionKey == null || transpositionKey == null) throw new NullPointerException();
+		Key key = new Key(substitutionKey, transpositionKey);
+		Segment segment = segments[(key.hashCode() & 0x7FFFFFFF) % segments.length];
+		Adfgvx cypher;
+		synchronized(segment) {
+			cypher = segment.get(key);
+		}
+		if(cypher != null) {
+			hits.increment();
+			return cypher;
+		}
+		misses.increment();
+		//Construction en dehors du verrou pour ne pas bloquer les autres clés du segment
+		cypher = new Adfgvx(substitutionKey, transpositionKey);
+		synchronized(segment) {
+			Adfgvx cached = segment.putIfAbsent(key, cypher);
+			return cached != null ? cached : cypher;
+		}
+	}
+
+	/**
+	 * Returns the number of calls to {@link #get(String, String)} that found the instance in the cache.
+	 *
+	 * @return the number of cache hits
+	 */
+	public long hitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of calls to {@link #get(String, String)} that had to create the instance.
+	 *
+	 * @return the number of cache misses
+	 */
+	public long missCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of instances removed from the cache to make room for new ones.
+	 *
+	 * @return the number of evictions
+	 */
+	public long evictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Returns the number of instances currently in the cache.
+	 *
+	 * @return the size of the cache
+	 */
+	public int size() {
+		int size = 0;
+		for(Segment segment : segments) {
+			synchronized(segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Segment du cache : une LinkedHashMap dans l'ordre d'accès qui retire
+	 * l'entrée la moins récemment utilisée quand sa taille maximale est dépassée.
+	 */
+	private final class Segment extends LinkedHashMap<Key, Adfgvx> {
+		private static final long serialVersionUID = 1L;
+		private final int maxSize;
+
+		/**
+		 * Construit un segment vide.
+		 * @param maxSize le nombre maximum d'entrées du segment
+		 */
+		private Segment(int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Adfgvx> eldest) {
+			if(size() > maxSize) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Paire de clés identifiant une entrée du cache.
+	 */
+	private static final class Key {
+		private final String substitutionKey;
+		private final String transpositionKey;
+
+		/**
+		 * Construit la paire de clés.
+		 * @param substitutionKey la clé de substitution
+		 * @param transpositionKey la clé de transposition
+		 */
+		private Key(String substitutionKey, String transpositionKey) {
+			this.substitutionKey = substitutionKey;
+			this.transpositionKey = transpositionKey;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if(!(other instanceof Key)) return false;
+			Key key = (Key) other;
+			return substitutionKey.equals(key.substitutionKey) && transpositionKey.equals(key.transpositionKey);
+		}
+
+		@Override
+		public int hashCode() {
+			return substitutionKey.hashCode() * 31 + transpositionKey.hashCode();
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package crypto;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Precompiled keys of an {@link Adfgvx} instance: the substitution tables and the
+ * reading order of the columns of the transposition grid, in a form that can be
+ * written to a fixed binary format and loaded back without validating and sorting
+ * the keys again.
+ *
+ * A schedule is obtained with {@link Adfgvx#getKeySchedule()} and turned back into a
+ * cipher with {@link Adfgvx#Adfgvx(AdfgvxKeySchedule)}. Its binary form is always
+ * {@link #SERIALIZED_LENGTH} bytes long:
+ * <pre>
+ * offset  length  content
+ *      0       4  magic number, "ADFG" in ASCII
+ *      4       1  format version, 1
+ *      5       1  k, length of the transposition key (1 to 26)
+ *      6      36  encode table: digram (row * 6 + column) of each character 0-9A-Z
+ *     42      36  decode table: character (0-9A-Z, as 0 to 35) of each digram
+ *     78      26  column order: column read in i-th position for i &lt; k, then 0
+ * </pre>
+ * Schedules are immutable and can be shared by any number of threads.
+ */
+public final class AdfgvxKeySchedule {
+
+	/**
+	 * Length in bytes of the binary form of a schedule.
+	 */
+	public static final int SERIALIZED_LENGTH = 104;
+	private static final byte[] MAGIC = {'A', 'D', 'F', 'G'};
+	private static final int VERSION = 1;
+	//Nombre de caractères de la clé de substitution et nombre maximum de colonnes
+	static final int KEY_CHAR_COUNT = 36;
+	static final int MAX_COLUMN_COUNT = 26;
+	//Positions des champs dans la forme binaire
+	static final int KEY_LENGTH_OFFSET = 5;
+	static final int ENCODE_OFFSET = 6;
+	static final int DECODE_OFFSET = ENCODE_OFFSET + KEY_CHAR_COUNT;
+	static final int ORDER_OFFSET = DECODE_OFFSET + KEY_CHAR_COUNT;
+
+	//Digramme associé à chaque caractère, indexé par sa position dans KEY_CHARS
+	final byte[] encodeTable;
+	//Position dans KEY_CHARS du caractère associé à chaque digramme
+	final byte[] decodeTable;
+	//Position dans la clé de transposition de chaque colonne, dans l'ordre de lecture
+	final byte[] columnOrder;
+
+	/**
+	 * Construit une programmation des clés à partir de ses tables, déjà valides.
+	 * @param encodeTable le digramme de chaque caractère
+	 * @param decodeTable le caractère de chaque digramme
+	 * @param columnOrder l'ordre de lecture des colonnes
+	 */
+	AdfgvxKeySchedule(byte[] encodeTable, byte[] decodeTable, byte[] columnOrder) {
+		this.encodeTable = encodeTable;
+		this.decodeTable = decodeTable;
+		this.columnOrder = columnOrder;
+	}
+
+	/**
+	 * Reads a schedule from the given buffer, at its position, and moves the position
+	 * after it. The content is checked, so a corrupted schedule cannot give a cipher
+	 * that would not be an ADFGVX cipher.
+	 *
+	 * @param src the buffer holding the binary form of the schedule
+	 * @return the schedule
+	 * @throws java.nio.BufferUnderflowException if less than {@link #SERIALIZED_LENGTH} bytes remain
+	 * @throws IllegalArgumentException if the bytes are not a valid schedule
+	 */
+	public static AdfgvxKeySchedule readFrom(ByteBuffer src) {
+		if(src == null) throw new NullPointerException();
+		byte[] bytes = new byte[SERIALIZED_LENGTH];
+		src.get(bytes);
+		return fromByteArray(bytes);
+	}
+
+	/**
+	 * Reads a schedule from its binary form.
+	 *
+	 * @param bytes the binary form of the schedule
+	 * @return the schedule
+	 * @throws IllegalArgumentException if the bytes are not a valid schedule
+	 */
+	public static AdfgvxKeySchedule fromByteArray(byte[] bytes) {
+		if(bytes == null) throw new NullPointerException();
+		if(bytes.length != SERIALIZED_LENGTH || !isValid(bytes)) {
+			throw new IllegalArgumentException();
+		}
+		int columnCount = bytes[KEY_LENGTH_OFFSET];
+		return new AdfgvxKeySchedule(Arrays.copyOfRange(bytes, ENCODE_OFFSET, DECODE_OFFSET),
+				Arrays.copyOfRange(bytes, DECODE_OFFSET, ORDER_OFFSET),
+				Arrays.copyOfRange(bytes, ORDER_OFFSET, ORDER_OFFSET + columnCount));
+	}
+
+	/**
+	 * Vérifie la forme binaire d'une programmation des clés : nombre magique, version,
+	 * longueur de la clé, tables de substitution inverses l'une de l'autre, ordre des
+	 * colonnes et octets de remplissage nuls.
+	 * @param bytes la forme binaire, de SERIALIZED_LENGTH octets
+	 * @return vrai si la forme binaire est valide, sinon faux
+	 */
+	static boolean isValid(byte[] bytes) {
+		return isValid(ByteBuffer.wrap(bytes), 0);
+	}
+
+	/**
+	 * Vérifie la forme binaire d'une programmation des clés lue directement dans un
+	 * tampon, comme isValid(byte[]), sans la copier.
+	 * @param buffer le tampon contenant la forme binaire
+	 * @param offset la position de la forme binaire dans le tampon
+	 * @return vrai si la forme binaire est valide, sinon faux
+	 */
+	static boolean isValid(ByteBuffer buffer, int offset) {
+		for(int i = 0; i < MAGIC.length; ++i) {
+			if(buffer.get(offset + i) != MAGIC[i]) {
+				return false;
+			}
+		}
+		int keyLength = buffer.get(offset + KEY_LENGTH_OFFSET);
+		if(buffer.get(offset + MAGIC.length) != VERSION || keyLength < 1 || keyLength > MAX_COLUMN_COUNT) {
+			return false;
+		}
+		int orderEnd = ORDER_OFFSET + keyLength;
+		if(!isPermutation(buffer, offset + ENCODE_OFFSET, offset + DECODE_OFFSET)
+				|| !isPermutation(buffer, offset + ORDER_OFFSET, offset + orderEnd)) {
+			return false;
+		}
+		for(int carac = 0; carac < KEY_CHAR_COUNT; ++carac) {
+			if(buffer.get(offset + DECODE_OFFSET + buffer.get(offset + ENCODE_OFFSET + carac)) != carac) {
+				return false;
+			}
+		}
+		for(int i = orderEnd; i < SERIALIZED_LENGTH; ++i) {
+			if(buffer.get(offset + i) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the binary form of the schedule into the given buffer, at its position,
+	 * and moves the position after it.
+	 *
+	 * @param dst the buffer in which to write the schedule
+	 * @throws java.nio.BufferOverflowException if less than {@link #SERIALIZED_LENGTH} bytes remain
+	 */
+	public void writeTo(ByteBuffer dst) {
+		if(dst == null) throw new NullPointerException();
+		dst.put(toByteArray());
+	}
+
+	/**
+	 * Returns the binary form of the schedule.
+	 *
+	 * @return an array of {@link #SERIALIZED_LENGTH} bytes
+	 */
+	public byte[] toByteArray() {
+		byte[] bytes = new byte[SERIALIZED_LENGTH];
+		System.arraycopy(MAGIC, 0, bytes, 0, MAGIC.length);
+		bytes[MAGIC.length] = VERSION;
+		bytes[KEY_LENGTH_OFFSET] = (byte) columnOrder.length;
+		System.arraycopy(encodeTable, 0, bytes, ENCODE_OFFSET, KEY_CHAR_COUNT);
+		System.arraycopy(decodeTable, 0, bytes, DECODE_OFFSET, KEY_CHAR_COUNT);
+		System.arraycopy(columnOrder, 0, bytes, ORDER_OFFSET, columnOrder.length);
+		return bytes;
+	}
+
+	/**
+	 * Returns the length of the transposition key of the schedule.
+	 *
+	 * @return the number of columns of the transposition grid
+	 */
+	public int getKeyLength() {
+		return columnOrder.length;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if(!(other instanceof AdfgvxKeySchedule)) return false;
+		AdfgvxKeySchedule schedule = (AdfgvxKeySchedule) other;
+		return Arrays.equals(encodeTable, schedule.encodeTable) && Arrays.equals(columnOrder, schedule.columnOrder);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(encodeTable) * 31 + Arrays.hashCode(columnOrder);
+	}
+
+	/**
+	 * Retourne vrai si la tranche [start, end[ du tampon contient chacun des entiers
+	 * de 0 à sa longueur exclue, vérifié par un masque d'un bit par entier déjà vu.
+	 * @param values le tampon
+	 * @param start le début de la tranche
+	 * @param end la fin (exclue) de la tranche, d'au plus 64 éléments
+	 * @return vrai si la tranche est une permutation, sinon faux
+	 */
+	private static boolean isPermutation(ByteBuffer values, int start, int end) {
+		long seen = 0;
+		for(int i = start; i < end; ++i) {
+			byte value = values.get(i);
+			if(value < 0 || value >= end - start || (seen & 1L << value) != 0) {
+				return false;
+			}
+			seen |= 1L << value;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,356 @@
+package crypto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Off-heap store of the keys of a large number of tenants, each identified by an
+ * index from 0 to the capacity of the store, in a memory-mapped file.
+ *
+ * Each tenant has a record of {@link #RECORD_STRIDE} bytes at {@code tenant * RECORD_STRIDE}:
+ * the binary form of its {@link AdfgvxKeySchedule}, then zeros. An empty record (all
+ * zeros) means that the tenant has no keys. The records live in the page cache rather
+ * than in the heap, so millions of tenants cost the garbage collector nothing, and
+ * they are kept in the file when the store is closed and opened again.
+ *
+ * A {@link View} encrypts and decrypts for any tenant of the store: selecting a tenant
+ * loads its record from the mapped file into tables owned by the view, so no object is
+ * created per tenant.
+ * Records of different tenants can be written and read by different threads at the
+ * same time, but a tenant must not be selected while its keys are being written.
+ */
+public final class AdfgvxKeyStore implements Closeable {
+
+	/**
+	 * Length in bytes of the record of each tenant: the binary form of a schedule
+	 * padded to a power of two, so that records never straddle a mapped window.
+	 */
+	public static final int RECORD_STRIDE = 128;
+	//Nombre d'enregistrements de chaque fenêtre projetée en mémoire
+	private static final int WINDOW_RECORD_COUNT = Adfgvx.MAP_WINDOW_SIZE / RECORD_STRIDE;
+	private static final int WINDOW_SHIFT = Integer.numberOfTrailingZeros(WINDOW_RECORD_COUNT);
+	//Objet Adfgvx dont les vues n'utilisent que la normalisation, le format et le remplissage
+	//par défaut, en lui passant les tables du locataire sélectionné
+	private static final Adfgvx FORMAT = new Adfgvx("0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ", "A");
+
+	private final FileChannel channel;
+	private final MappedByteBuffer[] windows;
+	private final int capacity;
+
+	/**
+	 * Opens the store in the given file, creating the file if it does not exist and
+	 * growing it to hold the given number of tenants if it is shorter. Records already
+	 * in the file are kept.
+	 *
+	 * @param path the file of the store
+	 * @param capacity the number of tenants of the store
+	 * @throws NullPointerException if the path is null
+	 * @throws IllegalArgumentException if the capacity is not positive
+	 * @throws IOException if the file cannot be opened or mapped
+	 */
+	public AdfgvxKeyStore(Path path, int capacity) throws IOException {
+		if(path == null) throw new NullPointerException();
+		if(capacity <= 0) throw new IllegalArgumentException();
+		this.capacity = capacity;
+		this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE);
+		try {
+			int windowCount = (capacity - 1 >>> WINDOW_SHIFT) + 1;
+			this.windows = new MappedByteBuffer[windowCount];
+			for(int i = 0; i < windowCount; ++i) {
+				long windowStart = (long) i * Adfgvx.MAP_WINDOW_SIZE;
+				//La dernière fenêtre s'arrête au dernier locataire ; la projection agrandit le fichier si besoin
+				long windowSize = Math.min(Adfgvx.MAP_WINDOW_SIZE, (long) capacity * RECORD_STRIDE - windowStart);
+				this.windows[i] = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, windowSize);
+			}
+		}catch(IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the number of tenants of the store.
+	 *
+	 * @return the capacity given when the store was opened
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Writes the keys of a tenant, replacing its previous keys if any.
+	 *
+	 * @param tenant the index of the tenant
+	 * @param schedule the precompiled keys of the tenant
+	 * @throws NullPointerException if the schedule is null
+	 * @throws IndexOutOfBoundsException if the tenant is not in the store
+	 */
+	public void put(int tenant, AdfgvxKeySchedule schedule) {
+		if(schedule == null) throw new NullPointerException();
+		byte[] bytes = schedule.toByteArray();
+		ByteBuffer window = window(tenant);
+		int offset = offset(tenant);
+		//Le nombre magique est écrit en dernier : un enregistrement à moitié écrit reste invalide
+		window.put(offset, (byte) 0);
+		for(int i = 1; i < RECORD_STRIDE; ++i) {
+			window.put(offset + i, i < bytes.length ? bytes[i] : 0);
+		}
+		window.put(offset, bytes[0]);
+	}
+
+	/**
+	 * Removes the keys of a tenant, which then has no keys.
+	 *
+	 * @param tenant the index of the tenant
+	 * @throws IndexOutOfBoundsException if the tenant is not in the store
+	 */
+	public void remove(int tenant) {
+		ByteBuffer window = window(tenant);
+		int offset = offset(tenant);
+		for(int i = 0; i < RECORD_STRIDE; ++i) {
+			window.put(offset + i, (byte) 0);
+		}
+	}
+
+	/**
+	 * Returns true if keys were written for the tenant and not removed since.
+	 *
+	 * @param tenant the index of the tenant
+	 * @return true if the tenant has keys, false otherwise
+	 * @throws IndexOutOfBoundsException if the tenant is not in the store
+	 */
+	public boolean contains(int tenant) {
+		return window(tenant).get(offset(tenant)) != 0;
+	}
+
+	/**
+	 * Reads the keys of a tenant into a schedule on the heap, for instance to build
+	 * an {@link Adfgvx} instance that outlives the store.
+	 *
+	 * @param tenant the index of the tenant
+	 * @return the precompiled keys of the tenant
+	 * @throws IndexOutOfBoundsException if the tenant is not in the store
+	 * @throws NoSuchElementException if the tenant has no keys
+	 * @throws IllegalStateException if the record of the tenant is corrupted
+	 */
+	public AdfgvxKeySchedule get(int tenant) {
+		byte[] record = new byte[AdfgvxKeySchedule.SERIALIZED_LENGTH];
+		readRecord(tenant, record);
+		return AdfgvxKeySchedule.fromByteArray(record);
+	}
+
+	/**
+	 * Returns a new view encrypting and decrypting for the tenants of the store. A view
+	 * is meant to be kept and reused by one thread; it must not be shared between threads.
+	 *
+	 * @return a view with no tenant selected
+	 */
+	public View view() {
+		return new View();
+	}
+
+	/**
+	 * Writes the records modified since the store was opened to the file.
+	 */
+	public void force() {
+		for(MappedByteBuffer window : windows) {
+			window.force();
+		}
+	}
+
+	/**
+	 * Closes the file of the store. The mapped records stay valid until the store is
+	 * garbage collected, but the store should not be used anymore.
+	 *
+	 * @throws IOException if the file cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Copie l'enregistrement d'un locataire dans le tableau donné, après avoir vérifié
+	 * qu'il contient une programmation des clés valide.
+	 * @param tenant l'indice du locataire
+	 * @param record le tableau de SERIALIZED_LENGTH octets recevant l'enregistrement
+	 */
+	private void readRecord(int tenant, byte[] record) {
+		ByteBuffer window = window(tenant);
+		int offset = offset(tenant);
+		checkRecord(window, offset);
+		for(int i = 0; i < record.length; ++i) {
+			record[i] = window.get(offset + i);
+		}
+	}
+
+	/**
+	 * Vérifie qu'un enregistrement contient une programmation des clés valide.
+	 * @param window la fenêtre de l'enregistrement
+	 * @param offset la position de l'enregistrement dans la fenêtre
+	 * @throws NoSuchElementException si l'enregistrement est vide
+	 * @throws IllegalStateException si l'enregistrement n'est pas valide
+	 */
+	private static void checkRecord(ByteBuffer window, int offset) {
+		if(window.get(offset) == 0) throw new NoSuchElementException();
+		if(!AdfgvxKeySchedule.isValid(window, offset)) throw new IllegalStateException();
+	}
+
+	/**
+	 * Retourne la fenêtre projetée contenant l'enregistrement d'un locataire.
+	 * @param tenant l'indice du locataire
+	 * @return la fenêtre de l'enregistrement
+	 */
+	private ByteBuffer window(int tenant) {
+		return windows[Objects.checkIndex(tenant, capacity) >>> WINDOW_SHIFT];
+	}
+
+	/**
+	 * Retourne la position de l'enregistrement d'un locataire dans sa fenêtre.
+	 * @param tenant l'indice du locataire, déjà vérifié
+	 * @return la position du premier octet de l'enregistrement
+	 */
+	private static int offset(int tenant) {
+		return (tenant & WINDOW_RECORD_COUNT - 1) * RECORD_STRIDE;
+	}
+
+	/**
+	 * Flyweight cipher for the tenants of a store. {@link #select(int)} loads the keys
+	 * of a tenant straight from the mapped record into tables owned by the view, which
+	 * are reused for every tenant; the other methods then work as those of an
+	 * {@link Adfgvx} instance built with the keys of the selected tenant, with the
+	 * default normalization, format and padding.
+	 *
+	 * A view is only valid for a tenant until the next call to {@code select}: it then
+	 * encrypts and decrypts with the keys of the new tenant. Code that needs the keys of
+	 * a tenant beyond that should take an immutable instance with
+	 * {@code new Adfgvx(store.get(tenant))}.
+	 */
+	public final class View {
+		//Tables des clés, une par longueur de clé, remplies de nouveau à chaque sélection
+		private final AdfgvxKeyTables[] tables = new AdfgvxKeyTables[AdfgvxKeySchedule.MAX_COLUMN_COUNT + 1];
+		//Tables du locataire sélectionné, null si aucun ne l'est
+		private AdfgvxKeyTables keys;
+		private int tenant = -1;
+
+		/**
+		 * Construit une vue sans locataire sélectionné.
+		 */
+		private View() {
+		}
+
+		/**
+		 * Selects the tenant whose keys the view uses from now on, until the next call
+		 * to this method.
+		 *
+		 * @param tenant the index of the tenant
+		 * @return this view
+		 * @throws IndexOutOfBoundsException if the tenant is not in the store
+		 * @throws NoSuchElementException if the tenant has no keys
+		 * @throws IllegalStateException if the record of the tenant is corrupted
+		 */
+		public View select(int tenant) {
+			this.keys = null;
+			this.tenant = -1;
+			ByteBuffer window = window(tenant);
+			int offset = offset(tenant);
+			checkRecord(window, offset);
+			int keyLength = window.get(offset + AdfgvxKeySchedule.KEY_LENGTH_OFFSET);
+			if(tables[keyLength] == null) {
+				tables[keyLength] = new AdfgvxKeyTables(keyLength);
+			}
+			tables[keyLength].load(window, offset);
+			this.keys = tables[keyLength];
+			this.tenant = tenant;
+			return this;
+		}
+
+		/**
+		 * Returns the selected tenant.
+		 *
+		 * @return the index of the tenant, -1 if none is selected
+		 */
+		public int getTenant() {
+			return tenant;
+		}
+
+		/**
+		 * Encrypts a text with the keys of the selected tenant, as {@link Adfgvx#encrypt(String)}.
+		 *
+		 * @param textToEncrypt the text to encrypt
+		 * @return the ADFGVX cryptogram
+		 * @throws IllegalStateException if no tenant is selected
+		 */
+		public String encrypt(String textToEncrypt) {
+			return FORMAT.encrypt(selected(), textToEncrypt);
+		}
+
+		/**
+		 * Encrypts a text into an array with the keys of the selected tenant, as
+		 * {@link Adfgvx#encryptInto(String, char[], int)}.
+		 *
+		 * @param textToEncrypt the text to encrypt
+		 * @param dst the array receiving the cryptogram
+		 * @param offset the position of the first character written
+		 * @return the number of characters written
+		 * @throws IllegalStateException if no tenant is selected
+		 */
+		public int encryptInto(String textToEncrypt, char[] dst, int offset) {
+			return FORMAT.encryptInto(selected(), textToEncrypt, dst, offset);
+		}
+
+		/**
+		 * Decrypts a cryptogram with the keys of the selected tenant, as {@link Adfgvx#decrypt(String)}.
+		 *
+		 * @param textToDecrypt the ADFGVX cryptogram
+		 * @return the decrypted text
+		 * @throws IllegalStateException if no tenant is selected
+		 */
+		public String decrypt(String textToDecrypt) {
+			return FORMAT.decrypt(selected(), textToDecrypt);
+		}
+
+		/**
+		 * Encrypts ASCII bytes with the keys of the selected tenant, as
+		 * {@link Adfgvx#encrypt(ByteBuffer, ByteBuffer)}.
+		 *
+		 * @param src the text to encrypt
+		 * @param dst the buffer receiving the cryptogram
+		 * @return the number of bytes written
+		 * @throws IllegalStateException if no tenant is selected
+		 */
+		public int encrypt(ByteBuffer src, ByteBuffer dst) {
+			return FORMAT.encrypt(selected(), src, dst);
+		}
+
+		/**
+		 * Decrypts ASCII bytes with the keys of the selected tenant, as
+		 * {@link Adfgvx#decrypt(ByteBuffer, ByteBuffer)}.
+		 *
+		 * @param src the ADFGVX cryptogram
+		 * @param dst the buffer receiving the decrypted text
+		 * @return the number of bytes written
+		 * @throws IllegalStateException if no tenant is selected
+		 */
+		public int decrypt(ByteBuffer src, ByteBuffer dst) {
+			return FORMAT.decrypt(selected(), src, dst);
+		}
+
+		/**
+		 * Retourne les tables des clés du locataire sélectionné.
+		 * @return les tables du locataire
+		 */
+		private AdfgvxKeyTables selected() {
+			if(keys == null) throw new IllegalStateException();
+			return keys;
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package crypto;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Tables de substitution et de transposition d'une paire de clés, lues par les méthodes
+ * de chiffrement et de déchiffrement de Adfgvx.
+ *
+ * Un objet Adfgvx remplit les siennes dans son constructeur et ne les modifie plus jamais.
+ * La vue d'un AdfgvxKeyStore garde ses propres tables, une par longueur de clé, qu'elle
+ * remplit de nouveau à chaque locataire sélectionné et qu'elle passe aux méthodes de Adfgvx.
+ */
+final class AdfgvxKeyTables {
+	//Index du digramme (rangée * 6 + colonne) associé à chaque caractère, indexé par sa position dans KEY_CHARS
+	final byte[] encryptTable = new byte[AdfgvxKeySchedule.KEY_CHAR_COUNT];
+	//Caractère associé à chaque digramme, indexé par rangée * 6 + colonne dans ADFGVX
+	final char[] decryptTable = new char[AdfgvxKeySchedule.KEY_CHAR_COUNT];
+	//Position dans la clé de transposition de chaque colonne, dans l'ordre alphabétique des lettres de la clé
+	final int[] columnOrder;
+	//Rang de lecture de chaque colonne du tableau de transposition (inverse de columnOrder)
+	final int[] columnRank;
+
+	/**
+	 * Construit des tables vides pour une clé de transposition de la longueur donnée.
+	 * @param keyLength la longueur de la clé de transposition
+	 */
+	AdfgvxKeyTables(int keyLength) {
+		this.columnOrder = new int[keyLength];
+		this.columnRank = new int[keyLength];
+	}
+
+	/**
+	 * Remplit les tables à partir de celles d'une programmation des clés déjà vérifiée.
+	 * @param schedule la programmation des clés, de la longueur de clé des tables
+	 */
+	void load(AdfgvxKeySchedule schedule) {
+		System.arraycopy(schedule.encodeTable, 0, this.encryptTable, 0, this.encryptTable.length);
+		for(int digram = 0; digram < this.decryptTable.length; ++digram) {
+			this.decryptTable[digram] = keyChar(schedule.decodeTable[digram]);
+		}
+		for(int rank = 0; rank < this.columnOrder.length; ++rank) {
+			setColumn(rank, schedule.columnOrder[rank]);
+		}
+	}
+
+	/**
+	 * Remplit les tables directement à partir de la forme binaire d'une programmation des
+	 * clés déjà vérifiée, lue dans un tampon (un enregistrement projeté en mémoire), sans
+	 * copie intermédiaire.
+	 * @param buffer le tampon contenant la forme binaire
+	 * @param offset la position de la forme binaire dans le tampon
+	 */
+	void load(ByteBuffer buffer, int offset) {
+		for(int i = 0; i < this.encryptTable.length; ++i) {
+			this.encryptTable[i] = buffer.get(offset + AdfgvxKeySchedule.ENCODE_OFFSET + i);
+		}
+		for(int digram = 0; digram < this.decryptTable.length; ++digram) {
+			this.decryptTable[digram] = keyChar(buffer.get(offset + AdfgvxKeySchedule.DECODE_OFFSET + digram));
+		}
+		for(int rank = 0; rank < this.columnOrder.length; ++rank) {
+			setColumn(rank, buffer.get(offset + AdfgvxKeySchedule.ORDER_OFFSET + rank));
+		}
+	}
+
+	/**
+	 * Place une colonne à son rang de lecture.
+	 * @param rank le rang de lecture
+	 * @param colNum la colonne lue à ce rang
+	 */
+	private void setColumn(int rank, int colNum) {
+		this.columnOrder[rank] = colNum;
+		this.columnRank[colNum] = rank;
+	}
+
+	/**
+	 * Retourne le chiffre ou la lettre à une position de KEY_CHARS : 0 à 9 pour les
+	 * chiffres, 10 à 35 pour les lettres.
+	 * @param offset la position du caractère
+	 * @return le caractère
+	 */
+	private static char keyChar(int offset) {
+		return (char) (offset < 10 ? '0' + offset : 'A' + offset - 10);
+	}
+}
@@ -0,0 +1,66 @@
+package crypto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Écriture d'un fichier à travers des fenêtres projetées en mémoire d'au plus
+ * Adfgvx.MAP_WINDOW_SIZE octets, pour que Adfgvx.encryptFile écrive le cryptogramme
+ * d'un fichier de n'importe quelle taille directement dans le fichier cible.
+ */
+final class AdfgvxMappedFile {
+
+	private AdfgvxMappedFile() {
+	}
+
+	/**
+	 * Fichier cible écrit en ASCII, qui projette une nouvelle fenêtre quand la fenêtre
+	 * courante ne peut contenir le texte à écrire. La fermeture tronque le fichier à la fin
+	 * du texte écrit.
+	 */
+	static final class AsciiTarget implements Closeable {
+		private final FileChannel channel;
+		private final long maxSize;
+		//Position dans le fichier du début de la fenêtre courante
+		private long windowStart;
+		//Fenêtre courante, null avant la première
+		private MappedByteBuffer window;
+
+		/**
+		 * Construit un fichier cible écrit depuis son début.
+		 * @param channel le fichier, ouvert en lecture et en écriture
+		 * @param maxSize la taille maximale du texte écrit, qui borne la taille des fenêtres
+		 */
+		AsciiTarget(FileChannel channel, long maxSize) {
+			this.channel = channel;
+			this.maxSize = maxSize;
+		}
+
+		/**
+		 * Retourne une fenêtre dont au moins le nombre d'octets donné reste libre après sa
+		 * position, qui est celle du prochain octet à écrire. L'appelant écrit à partir de
+		 * cette position et l'avance après le texte écrit, qui est alors conservé.
+		 * @param length le nombre d'octets à écrire
+		 * @return la fenêtre dans laquelle écrire
+		 * @throws IOException si une nouvelle fenêtre ne peut être projetée
+		 */
+		MappedByteBuffer reserve(int length) throws IOException {
+			if(window == null || window.remaining() < length) {
+				if(window != null) {
+					windowStart += window.position();
+				}
+				long windowSize = Math.max(length, Math.min(Adfgvx.MAP_WINDOW_SIZE, maxSize - windowStart));
+				window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, windowSize);
+			}
+			return window;
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.truncate(window != null ? windowStart + window.position() : 0);
+			window = null;
+		}
+	}
+}
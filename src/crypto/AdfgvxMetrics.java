@@ -0,0 +1,352 @@
+package crypto;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Counters and latency histograms of the operations of {@link Adfgvx} instances,
+ * enabled on an instance with {@link Adfgvx#withMetrics(AdfgvxMetrics)}.
+ *
+ * The metrics count the encryptions, decryptions and rejected cryptograms, the
+ * characters read and written, and time each {@link Phase} of the operations into
+ * a histogram with one bucket per power of two nanoseconds. They are updated with
+ * {@link LongAdder}s, so one metrics object can be shared by many instances and
+ * threads without contention. An instance without metrics only checks a null field
+ * per phase.
+ *
+ * Once {@link #register(String) registered}, the metrics are published as a JMX
+ * MXBean named {@code crypto:type=AdfgvxMetrics,name="<name>"} and as a periodic
+ * JDK Flight Recorder event, {@code crypto.AdfgvxMetrics}, emitted every second
+ * while a recording enables it.
+ */
+public final class AdfgvxMetrics implements AdfgvxMetricsMXBean {
+
+	/**
+	 * Phases timed by the metrics. Encryption cleans, substitutes and transposes the
+	 * text in the same pass, so these three steps are timed together as {@link #ENCIPHER}.
+	 */
+	public enum Phase {
+		/**
+		 * Encryption: measuring the cleaned text to size the cryptogram.
+		 */
+		CLEAN,
+		/**
+		 * Encryption: cleaning, substitution and transposition of the text, in one pass.
+		 */
+		ENCIPHER,
+		/**
+		 * Encryption: filling of the last row of the grid and writing of the separators.
+		 */
+		FORMAT,
+		/**
+		 * Decryption: removal of the separators and check of the length of the cryptogram.
+		 */
+		VALIDATE,
+		/**
+		 * Decryption: putting the digrams of the cryptogram back in order.
+		 */
+		TRANSPOSE,
+		/**
+		 * Decryption: replacement of each digram by its character.
+		 */
+		SUBSTITUTE
+	}
+
+	/**
+	 * Number of buckets of the latency histograms: the last one counts every duration
+	 * from 2^38 nanoseconds, about 4.6 minutes.
+	 */
+	public static final int HISTOGRAM_BUCKET_COUNT = 40;
+	private static final Phase[] PHASES = Phase.values();
+	//Métriques enregistrées, publiées par l'événement périodique de JFR
+	private static final List<AdfgvxMetrics> REGISTERED = new CopyOnWriteArrayList<>();
+	//Vrai une fois l'événement périodique ajouté à JFR, au premier enregistrement
+	private static boolean periodicEventAdded;
+
+	private final LongAdder encryptions = new LongAdder();
+	private final LongAdder decryptions = new LongAdder();
+	private final LongAdder rejectedInputs = new LongAdder();
+	private final LongAdder inputCharacters = new LongAdder();
+	private final LongAdder outputCharacters = new LongAdder();
+	//Durée totale de chaque étape et histogramme de ses durées, indexés par le numéro de l'étape
+	private final LongAdder[] phaseNanos = new LongAdder[PHASES.length];
+	private final LongAdder[][] histograms = new LongAdder[PHASES.length][HISTOGRAM_BUCKET_COUNT];
+	private volatile ObjectName objectName;
+	private volatile String name;
+
+	/**
+	 * Creates metrics with all counters at zero, not registered.
+	 */
+	public AdfgvxMetrics() {
+		for(int phase = 0; phase < PHASES.length; ++phase) {
+			phaseNanos[phase] = new LongAdder();
+			for(int bucket = 0; bucket < HISTOGRAM_BUCKET_COUNT; ++bucket) {
+				histograms[phase][bucket] = new LongAdder();
+			}
+		}
+	}
+
+	/**
+	 * Publishes the metrics under the given name as a JMX MXBean of the platform MBean
+	 * server and as periodic JDK Flight Recorder events.
+	 *
+	 * @param name the name of the metrics, such as the name of the service using them
+	 * @return the name of the MXBean
+	 * @throws NullPointerException if the name is null
+	 * @throws IllegalStateException if the metrics are already registered
+	 * @throws JMException if the MXBean cannot be registered, for instance if the name is already used
+	 */
+	public synchronized ObjectName register(String name) throws JMException {
+		if(name == null) throw new NullPointerException();
+		if(objectName != null) throw new IllegalStateException();
+		ObjectName objectName = new ObjectName("crypto:type=AdfgvxMetrics,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		this.name = name;
+		this.objectName = objectName;
+		addPeriodicEvent();
+		REGISTERED.add(this);
+		return objectName;
+	}
+
+	/**
+	 * Stops publishing the metrics. Does nothing if they are not registered.
+	 *
+	 * @throws JMException if the MXBean cannot be unregistered
+	 */
+	public synchronized void unregister() throws JMException {
+		if(objectName == null) return;
+		REGISTERED.remove(this);
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		this.objectName = null;
+		this.name = null;
+	}
+
+	@Override
+	public long getEncryptionCount() {
+		return encryptions.sum();
+	}
+
+	@Override
+	public long getDecryptionCount() {
+		return decryptions.sum();
+	}
+
+	@Override
+	public long getRejectedInputCount() {
+		return rejectedInputs.sum();
+	}
+
+	@Override
+	public long getInputCharacterCount() {
+		return inputCharacters.sum();
+	}
+
+	@Override
+	public long getOutputCharacterCount() {
+		return outputCharacters.sum();
+	}
+
+	/**
+	 * Returns the number of times a phase was run.
+	 *
+	 * @param phase the phase
+	 * @return the number of runs of the phase
+	 */
+	public long getPhaseCount(Phase phase) {
+		long count = 0;
+		for(long bucketCount : getLatencyHistogram(phase)) {
+			count += bucketCount;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the time spent in a phase.
+	 *
+	 * @param phase the phase
+	 * @return the total time of the phase, in nanoseconds
+	 */
+	public long getPhaseTotalNanos(Phase phase) {
+		return phaseNanos[phase.ordinal()].sum();
+	}
+
+	@Override
+	public Map<String, Long> getPhaseTotalNanos() {
+		Map<String, Long> totals = new LinkedHashMap<>();
+		for(Phase phase : PHASES) {
+			totals.put(phase.name(), getPhaseTotalNanos(phase));
+		}
+		return totals;
+	}
+
+	/**
+	 * Returns the latency histogram of a phase: bucket 0 counts the runs measured at
+	 * 0 nanoseconds and bucket i, from 1, the runs lasting from 2^(i-1) included to 2^i
+	 * nanoseconds excluded, the last bucket counting every longer run.
+	 *
+	 * @param phase the phase
+	 * @return an array of {@link #HISTOGRAM_BUCKET_COUNT} counts
+	 */
+	public long[] getLatencyHistogram(Phase phase) {
+		LongAdder[] histogram = histograms[phase.ordinal()];
+		long[] counts = new long[HISTOGRAM_BUCKET_COUNT];
+		for(int bucket = 0; bucket < HISTOGRAM_BUCKET_COUNT; ++bucket) {
+			counts[bucket] = histogram[bucket].sum();
+		}
+		return counts;
+	}
+
+	@Override
+	public long[] getLatencyHistogram(String phase) {
+		if(phase == null) throw new NullPointerException();
+		return getLatencyHistogram(Phase.valueOf(phase));
+	}
+
+	@Override
+	public void reset() {
+		encryptions.reset();
+		decryptions.reset();
+		rejectedInputs.reset();
+		inputCharacters.reset();
+		outputCharacters.reset();
+		for(int phase = 0; phase < PHASES.length; ++phase) {
+			phaseNanos[phase].reset();
+			for(LongAdder bucket : histograms[phase]) {
+				bucket.reset();
+			}
+		}
+	}
+
+	/**
+	 * Enregistre la durée d'une exécution d'une étape.
+	 * @param phase l'étape
+	 * @param nanos la durée de l'étape, en nanosecondes
+	 */
+	void recordPhase(Phase phase, long nanos) {
+		int bucket = Math.min(HISTOGRAM_BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+		phaseNanos[phase.ordinal()].add(nanos);
+		histograms[phase.ordinal()][bucket].increment();
+	}
+
+	/**
+	 * Enregistre un chiffrement.
+	 * @param inputLength la longueur du texte chiffré
+	 * @param outputLength la longueur du cryptogramme
+	 */
+	void recordEncryption(int inputLength, int outputLength) {
+		encryptions.increment();
+		inputCharacters.add(inputLength);
+		outputCharacters.add(outputLength);
+	}
+
+	/**
+	 * Enregistre un déchiffrement.
+	 * @param inputLength la longueur du cryptogramme
+	 * @param outputLength la longueur du texte déchiffré
+	 */
+	void recordDecryption(int inputLength, int outputLength) {
+		decryptions.increment();
+		inputCharacters.add(inputLength);
+		outputCharacters.add(outputLength);
+	}
+
+	/**
+	 * Enregistre un cryptogramme rejeté car non valide.
+	 */
+	void recordRejection() {
+		rejectedInputs.increment();
+	}
+
+	/**
+	 * Ajoute l'événement périodique à JFR s'il ne l'a pas encore été, pour que
+	 * les métriques jamais enregistrées ne démarrent pas JFR.
+	 */
+	private static synchronized void addPeriodicEvent() {
+		if(!periodicEventAdded) {
+			FlightRecorder.addPeriodicEvent(MetricsEvent.class, AdfgvxMetrics::emitEvents);
+			periodicEventAdded = true;
+		}
+	}
+
+	/**
+	 * Émet un événement JFR par métriques enregistrées, appelé par JFR à chaque période
+	 * de l'événement quand un enregistrement l'active.
+	 */
+	private static void emitEvents() {
+		for(AdfgvxMetrics metrics : REGISTERED) {
+			MetricsEvent event = new MetricsEvent();
+			event.name = metrics.name;
+			event.encryptions = metrics.getEncryptionCount();
+			event.decryptions = metrics.getDecryptionCount();
+			event.rejectedInputs = metrics.getRejectedInputCount();
+			event.inputCharacters = metrics.getInputCharacterCount();
+			event.outputCharacters = metrics.getOutputCharacterCount();
+			event.cleanTime = metrics.getPhaseTotalNanos(Phase.CLEAN);
+			event.encipherTime = metrics.getPhaseTotalNanos(Phase.ENCIPHER);
+			event.formatTime = metrics.getPhaseTotalNanos(Phase.FORMAT);
+			event.validateTime = metrics.getPhaseTotalNanos(Phase.VALIDATE);
+			event.transposeTime = metrics.getPhaseTotalNanos(Phase.TRANSPOSE);
+			event.substituteTime = metrics.getPhaseTotalNanos(Phase.SUBSTITUTE);
+			event.commit();
+		}
+	}
+
+	/**
+	 * Événement JFR périodique donnant les compteurs cumulés de métriques enregistrées.
+	 */
+	@Name("crypto.AdfgvxMetrics")
+	@Label("ADFGVX Metrics")
+	@Category("ADFGVX")
+	@Description("Cumulated counters and phase times of registered ADFGVX metrics")
+	@Period("1 s")
+	@StackTrace(false)
+	static final class MetricsEvent extends Event {
+		@Label("Name")
+		String name;
+		@Label("Encryptions")
+		long encryptions;
+		@Label("Decryptions")
+		long decryptions;
+		@Label("Rejected Inputs")
+		long rejectedInputs;
+		@Label("Input Characters")
+		long inputCharacters;
+		@Label("Output Characters")
+		long outputCharacters;
+		@Label("Clean Time")
+		@Timespan
+		long cleanTime;
+		@Label("Encipher Time")
+		@Timespan
+		long encipherTime;
+		@Label("Format Time")
+		@Timespan
+		long formatTime;
+		@Label("Validate Time")
+		@Timespan
+		long validateTime;
+		@Label("Transpose Time")
+		@Timespan
+		long transposeTime;
+		@Label("Substitute Time")
+		@Timespan
+		long substituteTime;
+	}
+}
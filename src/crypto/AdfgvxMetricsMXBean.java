@@ -0,0 +1,66 @@
+package crypto;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link AdfgvxMetrics}, through which the metrics are read
+ * with JMX tools such as JConsole once registered with {@link AdfgvxMetrics#register(String)}.
+ */
+public interface AdfgvxMetricsMXBean {
+
+	/**
+	 * Returns the number of texts encrypted.
+	 *
+	 * @return the number of encryptions
+	 */
+	long getEncryptionCount();
+
+	/**
+	 * Returns the number of cryptograms decrypted, rejected ones excluded.
+	 *
+	 * @return the number of decryptions
+	 */
+	long getDecryptionCount();
+
+	/**
+	 * Returns the number of cryptograms rejected as not valid.
+	 *
+	 * @return the number of rejected inputs
+	 */
+	long getRejectedInputCount();
+
+	/**
+	 * Returns the number of characters, or bytes, read by the encryptions and decryptions.
+	 *
+	 * @return the length of the inputs
+	 */
+	long getInputCharacterCount();
+
+	/**
+	 * Returns the number of characters, or bytes, written by the encryptions and decryptions.
+	 *
+	 * @return the length of the outputs
+	 */
+	long getOutputCharacterCount();
+
+	/**
+	 * Returns the time spent in each phase, in nanoseconds, by name of the phase.
+	 *
+	 * @return the total time of each phase
+	 */
+	Map<String, Long> getPhaseTotalNanos();
+
+	/**
+	 * Returns the latency histogram of a phase, as {@link AdfgvxMetrics#getLatencyHistogram(AdfgvxMetrics.Phase)}.
+	 *
+	 * @param phase the name of the phase
+	 * @return the number of runs of the phase in each bucket
+	 * @throws IllegalArgumentException if there is no phase of this name
+	 */
+	long[] getLatencyHistogram(String phase);
+
+	/**
+	 * Sets all the counters and histograms back to zero.
+	 */
+	void reset();
+}
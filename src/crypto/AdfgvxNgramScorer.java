@@ -0,0 +1,165 @@
+package crypto;
+
+/**
+ * Language model scoring candidate plaintexts during the cryptanalysis of ADFGVX
+ * cryptograms, such as {@link AdfgvxTranspositionSearch}.
+ *
+ * The model is a table of the log-probabilities of the n-grams (bigrams, trigrams or
+ * quadgrams...) of the 36 letters and digits of the cleaned texts, learnt from a sample
+ * text of the expected language. The score of a text is the sum of the log-probabilities
+ * of its n-grams: the closer a text is to the language, the higher its score. A scorer
+ * is immutable and can be shared by any number of threads.
+ */
+public final class AdfgvxNgramScorer {
+
+	/**
+	 * Largest n-gram length supported: the table then has 36^4 entries.
+	 */
+	public static final int MAX_ORDER = 4;
+	//Nombre de caractères d'un texte nettoyé : les chiffres puis les lettres
+	static final int ALPHABET_SIZE = 36;
+	//Probabilité donnée aux n-grammes absents du texte d'exemple, relative à une occurrence
+	private static final double UNSEEN_COUNT = 0.01;
+
+	private final int order;
+	//Nombre de n-grammes différents ayant les mêmes order - 1 derniers caractères
+	private final int contextCount;
+	//Logarithme décimal de la probabilité de chaque n-gramme, indexé par ses caractères en base 36
+	private final float[] logProbabilities;
+
+	/**
+	 * Learns the n-gram table from a sample text. The sample is cleaned as
+	 * {@link AdfgvxNormalization#DEFAULT} cleans a text to encrypt.
+	 *
+	 * @param order the length of the n-grams, between 1 and {@link #MAX_ORDER}
+	 * @param sample a text of the expected language, the longer the better
+	 * @throws NullPointerException if the sample is null
+	 * @throws IllegalArgumentException if the order is not valid or the cleaned sample is shorter than one n-gram
+	 */
+	public AdfgvxNgramScorer(int order, CharSequence sample) {
+		if(sample == null) throw new NullPointerException();
+		if(order < 1 || order > MAX_ORDER) throw new IllegalArgumentException();
+		this.order = order;
+		int ngramCount = 1;
+		for(int i = 0; i < order; ++i) {
+			ngramCount *= ALPHABET_SIZE;
+		}
+		this.contextCount = ngramCount / ALPHABET_SIZE;
+		byte[] symbols = cleanSymbols(sample);
+		if(symbols.length < order) throw new IllegalArgumentException();
+		int[] counts = new int[ngramCount];
+		int index = 0;
+		for(int i = 0; i < symbols.length; ++i) {
+			index = nextIndex(index, symbols[i]);
+			if(i >= order - 1) {
+				++counts[index];
+			}
+		}
+		double total = symbols.length - order + 1;
+		this.logProbabilities = new float[ngramCount];
+		for(int i = 0; i < ngramCount; ++i) {
+			this.logProbabilities[i] = (float) Math.log10((counts[i] != 0 ? counts[i] : UNSEEN_COUNT) / total);
+		}
+	}
+
+	/**
+	 * Returns the length of the n-grams of the table.
+	 *
+	 * @return the order of the model
+	 */
+	public int getOrder() {
+		return order;
+	}
+
+	/**
+	 * Returns the score of a text, cleaned first as {@link AdfgvxNormalization#DEFAULT}
+	 * cleans a text to encrypt: the sum of the log-probabilities of its n-grams.
+	 *
+	 * @param text the text to score
+	 * @return the score of the text, 0 if it is shorter than one n-gram
+	 * @throws NullPointerException if the text is null
+	 */
+	public double score(CharSequence text) {
+		if(text == null) throw new NullPointerException();
+		byte[] symbols = cleanSymbols(text);
+		return score(symbols, symbols.length);
+	}
+
+	/**
+	 * Retourne le score d'un texte déjà nettoyé, donné par la position de chacun de ses
+	 * caractères dans KEY_CHARS : 0 à 9 pour les chiffres, 10 à 35 pour les lettres.
+	 * @param symbols les positions des caractères du texte
+	 * @param length la longueur du texte
+	 * @return le score du texte
+	 */
+	double score(byte[] symbols, int length) {
+		float[] logProbabilities = this.logProbabilities;
+		int contextCount = this.contextCount;
+		int index = 0;
+		for(int i = 0; i < order - 1 && i < length; ++i) {
+			index = index * ALPHABET_SIZE + symbols[i];
+		}
+		//Fenêtre glissante sans division : ajout du caractère suivant puis retrait du premier
+		double score = 0;
+		for(int i = order - 1; i < length; ++i) {
+			index = index * ALPHABET_SIZE + symbols[i];
+			score += logProbabilities[index];
+			index -= symbols[i - order + 1] * contextCount;
+		}
+		return score;
+	}
+
+	/**
+	 * Retourne le logarithme de la probabilité du n-gramme commençant à la position donnée
+	 * d'un texte déjà nettoyé, donné comme pour score(byte[], int).
+	 * @param symbols les positions des caractères du texte dans KEY_CHARS
+	 * @param start la position du premier caractère du n-gramme
+	 * @return le logarithme décimal de la probabilité du n-gramme
+	 */
+	float logProbability(byte[] symbols, int start) {
+		int index = 0;
+		for(int i = start; i < start + order; ++i) {
+			index = index * ALPHABET_SIZE + symbols[i];
+		}
+		return logProbabilities[index];
+	}
+
+	/**
+	 * Retourne l'indice du n-gramme suivant : le n-gramme courant privé de son premier
+	 * caractère, suivi du caractère donné.
+	 * @param index l'indice du n-gramme courant
+	 * @param symbol la position du caractère suivant dans KEY_CHARS
+	 * @return l'indice du n-gramme suivant
+	 */
+	private int nextIndex(int index, int symbol) {
+		return index % contextCount * ALPHABET_SIZE + symbol;
+	}
+
+	/**
+	 * Nettoie un texte selon le profil par défaut et retourne la position de chacun de
+	 * ses caractères nettoyés dans KEY_CHARS.
+	 * @param text le texte
+	 * @return les positions des caractères du texte nettoyé
+	 */
+	private static byte[] cleanSymbols(CharSequence text) {
+		StringBuilder cleanText = new StringBuilder(text.length());
+		for(int i = 0; i < text.length(); ++i) {
+			cleanText.append(AdfgvxNormalization.DEFAULT.normalize(text.charAt(i)));
+		}
+		byte[] symbols = new byte[cleanText.length()];
+		for(int i = 0; i < symbols.length; ++i) {
+			symbols[i] = (byte) symbol(cleanText.charAt(i));
+		}
+		return symbols;
+	}
+
+	/**
+	 * Retourne la position d'un chiffre ou d'une lettre majuscule dans KEY_CHARS :
+	 * 0 à 9 pour les chiffres, 10 à 35 pour les lettres.
+	 * @param carac le chiffre ou la lettre majuscule
+	 * @return la position du caractère dans KEY_CHARS
+	 */
+	static int symbol(char carac) {
+		return carac <= '9' ? carac - '0' : carac - 'A' + 10;
+	}
+}
@@ -0,0 +1,251 @@
+package crypto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Normalization profile turning the characters of a text into the letters and digits
+ * encrypted by {@link Adfgvx}.
+ *
+ * A profile is compiled once into a lookup table with one entry per char, so that
+ * cleaning a text costs one table read per character whatever the profile. The
+ * {@link #DEFAULT} profile puts letters in upper case (independently of the default
+ * locale), removes the accents of the Latin-1 letters and drops any other character.
+ * Other profiles add replacements to it, such as 'Œ' → "OE", with
+ * {@link #withMappings(Map)}. Profiles are immutable and can be shared by any
+ * number of threads and Adfgvx instances.
+ */
+public final class AdfgvxNormalization {
+
+	//Premier code de la table désignant un caractère qui donne plusieurs caractères nettoyés
+	static final char EXPANSION_BASE = 0x8000;
+	//Blocs Unicode des caractères latins : latin de base, latin-1, latin étendu A et B,
+	//latin étendu additionnel et ligatures latines comme 'ﬁ'
+	private static final char[][] LATIN_BLOCKS = {{0x0000, 0x024F}, {0x1E00, 0x1EFF}, {0xFB00, 0xFB06}};
+
+	/**
+	 * Profile used by default: upper case, accents of the Latin-1 letters removed,
+	 * 'ß' → "SS", any other character dropped.
+	 */
+	public static final AdfgvxNormalization DEFAULT = new AdfgvxNormalization(generateCleanChars(), generateCleanExpansions());
+	/**
+	 * Default profile plus the French ligatures: 'Œ' → "OE" and 'Æ' → "AE".
+	 */
+	public static final AdfgvxNormalization FRENCH = DEFAULT.withMappings(Map.of(
+			'Œ', "OE", 'œ', "OE", 'Æ', "AE", 'æ', "AE"));
+	/**
+	 * Default profile plus the German transliteration of the umlauts: 'Ä' → "AE",
+	 * 'Ö' → "OE", 'Ü' → "UE", and 'ẞ' → "SS" like 'ß'.
+	 */
+	public static final AdfgvxNormalization GERMAN = DEFAULT.withMappings(Map.of(
+			'Ä', "AE", 'ä', "AE", 'Ö', "OE", 'ö', "OE", 'Ü', "UE", 'ü', "UE", 'ẞ', "SS"));
+	/**
+	 * Default profile plus 'Ñ' → "N".
+	 */
+	public static final AdfgvxNormalization SPANISH = DEFAULT.withMappings(Map.of(
+			'Ñ', "N", 'ñ', "N"));
+
+	//Caractère nettoyé correspondant à chaque caractère, indexé par son code : 0 s'il est retiré
+	//du texte, EXPANSION_BASE + i s'il donne les caractères expansions[i]
+	final char[] cleanChars;
+	//Caractères nettoyés des caractères qui en donnent plusieurs, comme 'ß' qui donne "SS"
+	final char[][] expansions;
+	//Caractères du texte nettoyé correspondant à chaque caractère ISO-8859-1, indexé par son code
+	final char[][] latin1CleanChars;
+	//Plus grand nombre de caractères nettoyés que donne un caractère
+	final int maxExpansion;
+
+	/**
+	 * Construit un profil à partir de sa table compilée.
+	 * @param cleanChars le caractère nettoyé de chaque caractère
+	 * @param expansions les caractères nettoyés des caractères qui en donnent plusieurs
+	 */
+	private AdfgvxNormalization(char[] cleanChars, char[][] expansions) {
+		this.cleanChars = cleanChars;
+		this.expansions = expansions;
+		this.latin1CleanChars = new char[256][];
+		for(int code = 0; code < this.latin1CleanChars.length; ++code) {
+			this.latin1CleanChars[code] = normalize((char) code);
+		}
+		int maxExpansion = 1;
+		for(char[] expansion : expansions) {
+			maxExpansion = Math.max(maxExpansion, expansion.length);
+		}
+		this.maxExpansion = maxExpansion;
+	}
+
+	/**
+	 * Returns a profile replacing the given characters as this profile would clean the
+	 * given replacements, and every other character as this profile does. Each character
+	 * of a replacement is itself normalized by this profile: "oe" gives "OE", and an empty
+	 * replacement drops the character. Characters are matched exactly, so the lower and
+	 * upper case forms of a letter are two different mappings. A replacement may be of
+	 * any length; {@link #getMaxExpansion()} gives the longest one.
+	 *
+	 * @param mappings the replacement of each character
+	 * @return the new profile
+	 * @throws NullPointerException if the mappings, one of the characters or one of the replacements is null
+	 */
+	public AdfgvxNormalization withMappings(Map<Character, String> mappings) {
+		if(mappings == null) throw new NullPointerException();
+		char[] table = this.cleanChars.clone();
+		List<char[]> newExpansions = new ArrayList<>(Arrays.asList(this.expansions));
+		for(Map.Entry<Character, String> mapping : mappings.entrySet()) {
+			char carac = mapping.getKey();
+			StringBuilder sb = new StringBuilder();
+			for(char replacementChar : mapping.getValue().toCharArray()) {
+				sb.append(normalize(replacementChar));
+			}
+			if(sb.length() == 0) {
+				table[carac] = 0;
+			}else if(sb.length() == 1) {
+				table[carac] = sb.charAt(0);
+			}else {
+				table[carac] = (char) (EXPANSION_BASE + newExpansions.size());
+				newExpansions.add(sb.toString().toCharArray());
+			}
+		}
+		return new AdfgvxNormalization(table, newExpansions.toArray(new char[newExpansions.size()][]));
+	}
+
+	/**
+	 * Returns the largest number of letters and digits that one character gives once
+	 * normalized by this profile, such as 3 for 'ﬃ' → "FFI" in the default profile.
+	 * A text of n characters gives at most n times this number of cleaned characters.
+	 *
+	 * @return the length of the longest replacement, at least 1
+	 */
+	public int getMaxExpansion() {
+		return maxExpansion;
+	}
+
+	/**
+	 * Returns the letters and digits that a character gives once normalized by this profile.
+	 *
+	 * @param carac the character
+	 * @return the normalized characters, none if the character is dropped
+	 */
+	public char[] normalize(char carac) {
+		char cleanCarac = cleanChars[carac];
+		if(cleanCarac >= EXPANSION_BASE) {
+			return expansions[cleanCarac - EXPANSION_BASE].clone();
+		}
+		return cleanCarac != 0 ? new char[] {cleanCarac} : new char[0];
+	}
+
+	/**
+	 * Retourne les caractères que donne un caractère une fois mis en majuscule et nettoyé :
+	 * aucun s'il est retiré du texte, plusieurs pour 'ß' qui devient "SS" en majuscule
+	 * ou pour les ligatures comme 'ﬁ'. La mise en majuscule ne dépend pas de la langue
+	 * du système (Locale.ROOT).
+	 *
+	 * @param carac le caractère
+	 * @return les caractères nettoyés
+	 */
+	private static char[] upperCaseCleanChars(char carac) {
+		String upperCase = String.valueOf(carac).toUpperCase(Locale.ROOT);
+		StringBuilder sb = new StringBuilder(upperCase.length());
+		for(int i = 0; i < upperCase.length(); ++i) {
+			char cleanCarac = cleanChar(upperCase.charAt(i));
+			if(cleanCarac != 0) {
+				sb.append(cleanCarac);
+			}
+		}
+		return sb.toString().toCharArray();
+	}
+
+	/**
+	 * Génère la table de normalisation du profil par défaut.
+	 *
+	 * @return le caractère nettoyé de chaque caractère, indexé par son code
+	 */
+	private static char[] generateCleanChars() {
+		char[] table = new char[Character.MAX_VALUE + 1];
+		int expansionCount = 0;
+		//Les autres caractères sont retirés du texte (0) : aucun ne donne en majuscule
+		//une lettre latine, avec ou sans accent, ou un chiffre
+		for(char[] block : LATIN_BLOCKS) {
+			for(int code = block[0]; code <= block[1]; ++code) {
+				char[] cleanChars = upperCaseCleanChars((char) code);
+				if(cleanChars.length == 1) {
+					table[code] = cleanChars[0];
+				}else if(cleanChars.length > 1) {
+					table[code] = (char) (EXPANSION_BASE + expansionCount);
+					++expansionCount;
+				}
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Génère les caractères nettoyés des caractères qui en donnent plusieurs dans le
+	 * profil par défaut, dans l'ordre où generateCleanChars les numérote.
+	 *
+	 * @return les caractères nettoyés de chacun de ces caractères
+	 */
+	private static char[][] generateCleanExpansions() {
+		List<char[]> expansions = new ArrayList<>();
+		for(char[] block : LATIN_BLOCKS) {
+			for(int code = block[0]; code <= block[1]; ++code) {
+				char[] cleanChars = upperCaseCleanChars((char) code);
+				if(cleanChars.length > 1) {
+					expansions.add(cleanChars);
+				}
+			}
+		}
+		return expansions.toArray(new char[expansions.size()][]);
+	}
+
+	/**
+	 * Retourne le caractère, déjà mis en majuscule, tel qu'il doit apparaître dans le
+	 * texte nettoyé, ou le caractère nul s'il doit être retiré du texte.
+	 * @param carac le caractère en majuscule
+	 * @return le caractère nettoyé, sinon le caractère nul
+	 */
+	private static char cleanChar(char carac) {
+		if(charInRange(carac,'A','Z') || charInRange(carac,'0','9')) {
+			return carac;
+		}
+		return handleAccents(carac);
+	}
+
+	/**
+	 * Vérifie si un caractère est compris entre deux autres caractères.
+	 * @param charToCheck le caractère à vérifier
+	 * @param lowerBound borne inférieure de l'intervalle
+	 * @param UpperBound borne supérieure de l'intervalle
+	 * @return vrai si le caractère est compris dans l'intervalle de caractères, sinon faux
+	 */
+	private static boolean charInRange(char charToCheck, char lowerBound, char upperBound) {
+		return lowerBound <= charToCheck && charToCheck <= upperBound;
+	}
+
+	/**
+	 * Retourne la lettre correspondant à la lettre accentuée donnée en argument,
+	 * ou le caractère nul si le caractère doit être retiré du texte.
+	 * @param carac le caractère accentué
+	 * @return la lettre sans accent, sinon le caractère nul
+	 */
+	private static char handleAccents(char carac) {
+		if(charInRange(carac, 'À','Å')) {
+			return 'A';
+		}else if(carac == 'Ç') {
+			return 'C';
+		}else if(charInRange(carac,'È','Ë')) {
+			return 'E';
+		}else if(charInRange(carac,'Ì','Ï')) {
+			return 'I';
+		}else if(charInRange(carac,'Ò','Ö')) {
+			return 'O';
+		}else if(charInRange(carac,'Ù','Ü')) {
+			return 'U';
+		}else if(carac == 'Ÿ') {
+			return 'Y';
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,97 @@
+package crypto;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Padding mode choosing the symbols that fill the last row of the transposition grid
+ * of {@link Adfgvx}.
+ *
+ * The random modes draw each filler symbol uniformly among A, D, F, G, V and X, from
+ * a generator owned by the calling thread: threads never wait for each other and no
+ * memory is allocated per cryptogram.
+ */
+public enum AdfgvxPadding {
+
+	/**
+	 * Fills with 'X'. The cryptogram of a text is always the same.
+	 */
+	CONSTANT {
+		@Override
+		int nextSymbol() {
+			return CONSTANT_SYMBOL;
+		}
+	},
+	/**
+	 * Fills with symbols drawn from {@link ThreadLocalRandom}: fast, but predictable
+	 * by anyone who observes enough of its output.
+	 */
+	FAST_RANDOM {
+		@Override
+		int nextSymbol() {
+			return ThreadLocalRandom.current().nextInt(SYMBOL_COUNT);
+		}
+	},
+	/**
+	 * Fills with symbols drawn from a {@link SecureRandom} per thread, whose bytes are
+	 * fetched in bulk into a buffer so that the generator is called once every thousand symbols or so.
+	 */
+	SECURE_RANDOM {
+		@Override
+		int nextSymbol() {
+			return SECURE_BUFFERS.get().nextSymbol();
+		}
+	};
+
+	//Nombre de symboles de l'ADFGVX et position du 'X' parmi eux
+	private static final int SYMBOL_COUNT = 6;
+	private static final int CONSTANT_SYMBOL = 5;
+	private static final int SECURE_BUFFER_LENGTH = 512;
+	//Un octet inférieur à 6^3 = 216 donne 3 symboles, ses chiffres en base 6 ; les octets
+	//au-delà sont ignorés pour que chaque symbole ait la même probabilité
+	private static final int SYMBOLS_PER_BYTE = 3;
+	private static final int SECURE_BYTE_LIMIT = SYMBOL_COUNT * SYMBOL_COUNT * SYMBOL_COUNT;
+	private static final ThreadLocal<SecureBuffer> SECURE_BUFFERS = ThreadLocal.withInitial(SecureBuffer::new);
+
+	/**
+	 * Retourne la position dans ADFGVX du prochain symbole de remplissage.
+	 * @return un entier entre 0 et 5
+	 */
+	abstract int nextSymbol();
+
+	/**
+	 * Générateur SecureRandom d'un thread et octets aléatoires qu'il a déjà produits,
+	 * consommés un par un, chacun donnant jusqu'à trois symboles.
+	 */
+	private static final class SecureBuffer {
+		private final SecureRandom random = new SecureRandom();
+		private final byte[] bytes = new byte[SECURE_BUFFER_LENGTH];
+		private int position = bytes.length;
+		//Chiffres en base 6 de l'octet en cours qui n'ont pas encore été utilisés
+		private int pendingSymbols;
+		private int pendingCount;
+
+		/**
+		 * Retourne la position dans ADFGVX d'un symbole tiré uniformément, en
+		 * remplissant de nouveau le tampon quand tous ses octets ont été consommés.
+		 * @return un entier entre 0 et 5
+		 */
+		private int nextSymbol() {
+			while(pendingCount == 0) {
+				if(position == bytes.length) {
+					random.nextBytes(bytes);
+					position = 0;
+				}
+				int value = bytes[position++] & 0xFF;
+				if(value < SECURE_BYTE_LIMIT) {
+					pendingSymbols = value;
+					pendingCount = SYMBOLS_PER_BYTE;
+				}
+			}
+			int symbol = pendingSymbols % SYMBOL_COUNT;
+			pendingSymbols /= SYMBOL_COUNT;
+			--pendingCount;
+			return symbol;
+		}
+	}
+}
@@ -0,0 +1,288 @@
+package crypto;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Small ADFGVX encryption service listening on a TCP port of the loopback interface.
+ *
+ * The protocol is line oriented, in UTF-8. Each request is one line:
+ * <pre>
+ * ENCRYPT &lt;substitutionKey&gt; &lt;transpositionKey&gt; &lt;text&gt;
+ * DECRYPT &lt;substitutionKey&gt; &lt;transpositionKey&gt; &lt;cryptogram&gt;
+ * </pre>
+ * and is answered by one line, {@code OK <result>} or {@code ERROR <reason>}.
+ * A request longer than {@link #MAX_REQUEST_LENGTH} characters is answered by
+ * {@code ERROR request too long} without being kept in memory. Requests may be pipelined: a client can send several lines without waiting, the
+ * responses come back in the same order.
+ *
+ * Each connection is served by its own thread, a virtual thread when the JVM provides
+ * them (Java 21 and later), otherwise a pooled platform thread. The Adfgvx instances
+ * are immutable and shared by all the connections using the same pair of keys, through
+ * a bounded {@link AdfgvxCache}.
+ */
+public final class AdfgvxServer implements Closeable {
+
+	/**
+	 * Number of pairs of keys whose Adfgvx instance is kept by a server created with
+	 * {@link #AdfgvxServer(int)}.
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 4096;
+
+	/**
+	 * Number of incoming connections waiting to be accepted beyond which a server created
+	 * without an explicit backlog refuses new ones.
+	 */
+	public static final int DEFAULT_BACKLOG = 1024;
+
+	/**
+	 * Largest number of characters of a request, its line feed excluded.
+	 */
+	public static final int MAX_REQUEST_LENGTH = 1 << 16;
+
+	private final ServerSocket serverSocket;
+	private final ExecutorService connectionExecutor;
+	private final Set<Socket> connections;
+	private final AdfgvxCache cyphers;
+	private final Thread acceptThread;
+	//Vrai dès le début de close(), pour que le thread d'acceptation ferme les connexions acceptées ensuite
+	private volatile boolean closed;
+
+	/**
+	 * Starts a server listening on the given port of the loopback interface.
+	 *
+	 * @param port the port to listen on, or 0 to use any free port
+	 * @throws IOException if the port cannot be opened
+	 */
+	public AdfgvxServer(int port) throws IOException {
+		this(port, new AdfgvxCache(DEFAULT_CACHE_SIZE));
+	}
+
+	/**
+	 * Starts a server listening on the given port of the loopback interface, taking the
+	 * Adfgvx instance of each pair of keys from the given cache.
+	 *
+	 * @param port the port to listen on, or 0 to use any free port
+	 * @param cyphers the cache of Adfgvx instances
+	 * @throws IOException if the port cannot be opened
+	 */
+	public AdfgvxServer(int port, AdfgvxCache cyphers) throws IOException {
+		this(port, cyphers, DEFAULT_BACKLOG);
+	}
+
+	/**
+	 * Starts a server listening on the given port of the loopback interface, taking the
+	 * Adfgvx instance of each pair of keys from the given cache.
+	 *
+	 * @param port the port to listen on, or 0 to use any free port
+	 * @param cyphers the cache of Adfgvx instances
+	 * @param backlog the number of incoming connections that may wait to be accepted
+	 * @throws IOException if the port cannot be opened
+	 * @throws IllegalArgumentException if the backlog is not positive
+	 */
+	public AdfgvxServer(int port, AdfgvxCache cyphers, int backlog) throws IOException {
+		if(cyphers == null) throw new NullPointerException();
+		if(backlog <= 0) throw new IllegalArgumentException();
+		this.serverSocket = new ServerSocket(port, backlog, InetAddress.getLoopbackAddress());
+		this.connectionExecutor = newThreadPerTaskExecutor();
+		this.connections = ConcurrentHashMap.newKeySet();
+		this.cyphers = cyphers;
+		this.acceptThread = new Thread(this::acceptConnections, "adfgvx-server-" + getPort());
+		this.acceptThread.start();
+	}
+
+	/**
+	 * Returns the port the server is listening on.
+	 *
+	 * @return the port of the server
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Stops the server and closes all the open connections.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		serverSocket.close();
+		for(Socket socket : connections) {
+			socket.close();
+		}
+		connectionExecutor.shutdown();
+	}
+
+	/**
+	 * Retourne un exécuteur qui lance un thread virtuel par tâche si la JVM le permet
+	 * (Java 21 et plus), sinon un pool de threads qui en crée autant que nécessaire.
+	 * @return l'exécuteur
+	 */
+	static ExecutorService newThreadPerTaskExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}catch(ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	/**
+	 * Accepte les connexions entrantes jusqu'à la fermeture du serveur et
+	 * confie chacune d'elles à son propre thread.
+	 */
+	private void acceptConnections() {
+		while(!closed) {
+			Socket socket;
+			try {
+				socket = serverSocket.accept();
+			}catch(IOException e) {
+				//Le serveur a été fermé
+				continue;
+			}
+			connections.add(socket);
+			//Une connexion acceptée pendant close() après son parcours des connexions est fermée ici
+			if(closed) {
+				closeConnection(socket);
+				break;
+			}
+			try {
+				socket.setTcpNoDelay(true);
+				connectionExecutor.execute(() -> serve(socket));
+			}catch(IOException | RejectedExecutionException e) {
+				closeConnection(socket);
+			}
+		}
+	}
+
+	/**
+	 * Ferme une connexion qui ne sera pas servie et l'oublie.
+	 * @param socket la connexion
+	 */
+	private void closeConnection(Socket socket) {
+		connections.remove(socket);
+		try {
+			socket.close();
+		}catch(IOException e) {
+			//La connexion est abandonnée de toute façon
+		}
+	}
+
+	/**
+	 * Répond aux requêtes d'une connexion jusqu'à ce que le client la ferme.
+	 * Les réponses ne sont envoyées que lorsqu'aucune autre requête n'est déjà arrivée,
+	 * afin de regrouper les réponses aux requêtes envoyées à la suite.
+	 * @param socket la connexion
+	 */
+	private void serve(Socket socket) {
+		try(socket;
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+			StringBuilder request = new StringBuilder();
+			int requestLength;
+			while((requestLength = readRequest(in, request)) >= 0) {
+				out.write(requestLength > MAX_REQUEST_LENGTH ? "ERROR request too long" : handle(request.toString()));
+				out.write('\n');
+				if(!in.ready()) {
+					out.flush();
+				}
+			}
+		}catch(IOException e) {
+			//Connexion fermée par le client ou par le serveur
+		}finally {
+			connections.remove(socket);
+		}
+	}
+
+	/**
+	 * Lit la prochaine requête, sans son saut de ligne ni le retour chariot qui le précède.
+	 * Au-delà de MAX_REQUEST_LENGTH caractères, retour chariot compris, le reste de la ligne
+	 * est lu sans être conservé : une requête de MAX_REQUEST_LENGTH caractères est ainsi
+	 * acceptée qu'elle finisse par CRLF ou par LF.
+	 * @param in la connexion
+	 * @param request le tampon où écrire la requête
+	 * @return la longueur de la requête, sans le retour chariot, plus de MAX_REQUEST_LENGTH
+	 * si elle est trop longue, ou -1 si la connexion est fermée
+	 * @throws IOException si la lecture échoue
+	 */
+	static int readRequest(Reader in, StringBuilder request) throws IOException {
+		request.setLength(0);
+		int length = 0;
+		int lastCarac = -1;
+		int carac;
+		while((carac = in.read()) != '\n') {
+			if(carac < 0) {
+				if(length == 0) return -1;
+				break;
+			}
+			if(length++ <= MAX_REQUEST_LENGTH) {
+				request.append((char) carac);
+			}
+			lastCarac = carac;
+		}
+		if(lastCarac == '\r') {
+			--length;
+			if(request.length() > length) {
+				request.setLength(length);
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Traite une requête et retourne la réponse à envoyer au client.
+	 * @param request la requête
+	 * @return la réponse, OK suivi du résultat ou ERROR suivi de la raison
+	 */
+	String handle(String request) {
+		String[] parts = request.split(" ", 4);
+		if(parts.length < 3) {
+			return "ERROR malformed request";
+		}
+		String text = parts.length == 4 ? parts[3] : "";
+		Adfgvx cypher;
+		try {
+			cypher = cyphers.get(parts[1], parts[2]);
+		}catch(IllegalArgumentException e) {
+			return "ERROR invalid key";
+		}
+		switch(parts[0]) {
+			case "ENCRYPT":
+				return "OK " + cypher.encrypt(text);
+			case "DECRYPT":
+				try {
+					return "OK " + cypher.decrypt(text);
+				}catch(IllegalArgumentException e) {
+					return "ERROR invalid cryptogram";
+				}
+			default:
+				return "ERROR unknown command";
+		}
+	}
+
+	/**
+	 * Starts a server on the given port, 7000 by default, until the process is stopped.
+	 *
+	 * @param args the port (optional)
+	 * @throws IOException if the port cannot be opened
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 7000;
+		AdfgvxServer server = new AdfgvxServer(port);
+		System.out.println("ADFGVX server listening on localhost:" + server.getPort());
+	}
+}
@@ -0,0 +1,107 @@
+package crypto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesure de la latence du serveur AdfgvxServer sous charge : de nombreux clients
+ * connectés en même temps envoient chacun une suite de requêtes de chiffrement.
+ */
+public class AdfgvxServerBenchmark {
+
+	private static final String REQUEST =
+			"ENCRYPT BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C BRUTES DEMANDE RENFORTS D'URGENCE\n";
+
+	/**
+	 * Envoie les requêtes d'un client une par une, en attendant chaque réponse,
+	 * et enregistre la latence de chacune d'elles.
+	 * @param port le port du serveur
+	 * @param latencies le tableau des latences
+	 * @param offset la position des latences du client dans le tableau
+	 * @param requestCount le nombre de requêtes à envoyer
+	 * @param ready le compteur des clients connectés
+	 * @param start le signal de départ commun à tous les clients
+	 */
+	private static void runClient(int port, long[] latencies, int offset, int requestCount,
+			CountDownLatch ready, CountDownLatch start) {
+		byte[] request = REQUEST.getBytes(StandardCharsets.UTF_8);
+		try(Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			socket.setTcpNoDelay(true);
+			OutputStream out = socket.getOutputStream();
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			ready.countDown();
+			start.await();
+			for(int i = 0; i < requestCount; ++i) {
+				long time = System.nanoTime();
+				out.write(request);
+				out.flush();
+				if(in.readLine() == null) {
+					throw new IOException("connection closed by the server");
+				}
+				latencies[offset + i] = System.nanoTime() - time;
+			}
+		}catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Retourne le centile demandé d'un tableau trié de latences.
+	 * @param sortedLatencies les latences triées
+	 * @param percentile le centile, entre 0 et 100
+	 * @return la latence du centile en microsecondes
+	 */
+	private static double percentile(long[] sortedLatencies, double percentile) {
+		int index = (int) Math.ceil(percentile / 100 * sortedLatencies.length) - 1;
+		return sortedLatencies[Math.max(0, index)] / 1e3;
+	}
+
+	/**
+	 * Lance un serveur local puis les clients, et affiche le débit et les centiles de latence.
+	 *
+	 * @param args le nombre de clients et le nombre de requêtes par client (optionnels)
+	 * @throws Exception si le serveur ne peut pas démarrer ou si un client échoue
+	 */
+	public static void main(String[] args) throws Exception {
+		int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int requestCount = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		long[] latencies = new long[clientCount * requestCount];
+
+		try(AdfgvxServer server = new AdfgvxServer(0)) {
+			ExecutorService clients = AdfgvxServer.newThreadPerTaskExecutor();
+			CountDownLatch ready = new CountDownLatch(clientCount);
+			CountDownLatch start = new CountDownLatch(1);
+			for(int client = 0; client < clientCount; ++client) {
+				int offset = client * requestCount;
+				clients.execute(() -> runClient(server.getPort(), latencies, offset, requestCount, ready, start));
+			}
+			if(!ready.await(1, TimeUnit.MINUTES)) {
+				throw new IOException("clients could not connect to the server");
+			}
+			long time = System.nanoTime();
+			start.countDown();
+			clients.shutdown();
+			clients.awaitTermination(1, TimeUnit.HOURS);
+			long elapsed = System.nanoTime() - time;
+
+			Arrays.sort(latencies);
+			System.out.println(">>> ADFGVX SERVER - " + clientCount + " clients x " + requestCount + " requests");
+			System.out.printf("Throughput = %.0f requests/s%n", latencies.length * 1e9 / elapsed);
+			System.out.printf("Latency (us): p50 = %.1f, p90 = %.1f, p99 = %.1f, p99.9 = %.1f, max = %.1f%n",
+					percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+					percentile(latencies, 99.9), percentile(latencies, 100));
+		}
+	}
+}
@@ -0,0 +1,340 @@
+package crypto;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Recovery of the substitution key of an ADFGVX cryptogram whose transposition key
+ * is known or guessed, for cryptanalysis exercises.
+ *
+ * Once the transposition is undone, the cryptogram is a sequence of digrams, each
+ * standing for one character of the plaintext: recovering the substitution key is
+ * solving a simple substitution. The search climbs from a random key by swapping the
+ * characters of two digrams as long as a swap improves the score of the plaintext for
+ * an {@link AdfgvxNgramScorer}. A swap only changes the characters of the two digrams,
+ * so only the n-grams touching them are scored again, instead of the whole text.
+ *
+ * The climb stops in a local optimum, so it is restarted from several random keys,
+ * in parallel on the threads of a fork-join pool, and the best result is kept.
+ * The restarts are seeded by their number: the same search gives the same result.
+ * Digrams that do not appear in the cryptogram are left at an arbitrary place of the key.
+ */
+public final class AdfgvxSubstitutionSearch {
+
+	//Clé de substitution dont le caractère de chaque digramme est celui de position rangée * 6 + colonne
+	//dans KEY_CHARS : le texte déchiffré avec elle donne directement les digrammes
+	private static final String IDENTITY_KEY = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+	private static final int DIGRAM_COUNT = 36;
+
+	private final Adfgvx transposition;
+	private final AdfgvxNgramScorer scorer;
+
+	/**
+	 * Prepares the search of the substitution keys for a known transposition key.
+	 *
+	 * @param transpositionKey the transposition key of the cryptograms
+	 * @param scorer the model scoring the candidate plaintexts
+	 * @throws NullPointerException if the key or the scorer is null
+	 * @throws IllegalArgumentException if the transposition key is not valid
+	 */
+	public AdfgvxSubstitutionSearch(String transpositionKey, AdfgvxNgramScorer scorer) {
+		if(scorer == null) throw new NullPointerException();
+		this.transposition = new Adfgvx(IDENTITY_KEY, transpositionKey);
+		this.scorer = scorer;
+	}
+
+	/**
+	 * Searches the substitution key with the given number of restarts, on the common fork-join pool.
+	 *
+	 * @param cryptogram the ADFGVX cryptogram
+	 * @param restartCount the number of climbs from a random key
+	 * @return the best key found
+	 * @throws NullPointerException if the cryptogram is null
+	 * @throws IllegalArgumentException if the number of restarts is not positive or the cryptogram is not valid
+	 */
+	public Result search(String cryptogram, int restartCount) {
+		return search(cryptogram, restartCount, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Searches the substitution key with the given number of restarts, on the given
+	 * fork-join pool. When several restarts reach the same score, the first one wins.
+	 *
+	 * @param cryptogram the ADFGVX cryptogram
+	 * @param restartCount the number of climbs from a random key
+	 * @param pool the pool running the restarts
+	 * @return the best key found
+	 * @throws NullPointerException if the cryptogram or the pool is null
+	 * @throws IllegalArgumentException if the number of restarts is not positive or the cryptogram is not valid
+	 */
+	public Result search(String cryptogram, int restartCount, ForkJoinPool pool) {
+		if(pool == null) throw new NullPointerException();
+		if(restartCount <= 0) throw new IllegalArgumentException();
+		String digrams = transposition.decrypt(cryptogram);
+		byte[] text = new byte[digrams.length()];
+		int[] occurrenceCounts = new int[DIGRAM_COUNT];
+		for(int i = 0; i < text.length; ++i) {
+			text[i] = (byte) AdfgvxNgramScorer.symbol(digrams.charAt(i));
+			++occurrenceCounts[text[i]];
+		}
+		//Positions de chaque digramme dans le texte
+		int[][] positions = new int[DIGRAM_COUNT][];
+		for(int digram = 0; digram < DIGRAM_COUNT; ++digram) {
+			positions[digram] = new int[occurrenceCounts[digram]];
+			occurrenceCounts[digram] = 0;
+		}
+		for(int i = 0; i < text.length; ++i) {
+			positions[text[i]][occurrenceCounts[text[i]]++] = i;
+		}
+		Climb best = pool.invoke(new RestartTask(new Search(text, positions), 0, restartCount));
+		char[] substitutionKey = new char[DIGRAM_COUNT];
+		char[] plainText = new char[text.length];
+		for(int digram = 0; digram < DIGRAM_COUNT; ++digram) {
+			substitutionKey[digram] = IDENTITY_KEY.charAt(best.key[digram]);
+		}
+		for(int i = 0; i < text.length; ++i) {
+			plainText[i] = substitutionKey[text[i]];
+		}
+		return new Result(new String(substitutionKey), new String(plainText), best.score);
+	}
+
+	/**
+	 * Best substitution key found by a search.
+	 */
+	public static final class Result {
+		private final String substitutionKey;
+		private final String plainText;
+		private final double score;
+
+		/**
+		 * Construit le résultat d'une recherche.
+		 * @param substitutionKey la clé de substitution trouvée
+		 * @param plainText le texte déchiffré avec cette clé
+		 * @param score le score du texte déchiffré
+		 */
+		private Result(String substitutionKey, String plainText, double score) {
+			this.substitutionKey = substitutionKey;
+			this.plainText = plainText;
+			this.score = score;
+		}
+
+		/**
+		 * Returns the substitution key found, a valid key for {@link Adfgvx}.
+		 *
+		 * @return the substitution key
+		 */
+		public String getSubstitutionKey() {
+			return substitutionKey;
+		}
+
+		/**
+		 * Returns the cryptogram decrypted with the key found.
+		 *
+		 * @return the decrypted text
+		 */
+		public String getPlainText() {
+			return plainText;
+		}
+
+		/**
+		 * Returns the score of the decrypted text.
+		 *
+		 * @return the score given by the scorer of the search
+		 */
+		public double getScore() {
+			return score;
+		}
+	}
+
+	/**
+	 * Données d'une recherche partagées par toutes ses montées : le texte réduit à ses
+	 * digrammes (rangée * 6 + colonne) et les positions de chaque digramme dans le texte.
+	 */
+	private final class Search {
+		private final byte[] text;
+		private final int[][] positions;
+
+		/**
+		 * Construit les données d'une recherche.
+		 * @param text les digrammes du texte, dans l'ordre
+		 * @param positions les positions de chaque digramme dans le texte
+		 */
+		private Search(byte[] text, int[][] positions) {
+			this.text = text;
+			this.positions = positions;
+		}
+
+		/**
+		 * Monte à partir d'une clé aléatoire en échangeant les caractères de deux digrammes
+		 * tant qu'un échange améliore le score, jusqu'à un passage complet sans amélioration.
+		 * @param restart le numéro de la montée, graine de sa clé aléatoire
+		 * @return la clé atteinte et son score
+		 */
+		private Climb climb(int restart) {
+			SplittableRandom random = new SplittableRandom(restart);
+			int length = text.length;
+			int order = scorer.getOrder();
+			//Caractère de chaque digramme, par sa position dans KEY_CHARS
+			byte[] key = new byte[DIGRAM_COUNT];
+			for(int digram = 0; digram < DIGRAM_COUNT; ++digram) {
+				key[digram] = (byte) digram;
+			}
+			for(int digram = DIGRAM_COUNT - 1; digram > 0; --digram) {
+				swap(key, digram, random.nextInt(digram + 1));
+			}
+			byte[] plainText = new byte[length];
+			for(int i = 0; i < length; ++i) {
+				plainText[i] = key[text[i]];
+			}
+			//N-grammes touchés par l'échange en cours, marqués du numéro de l'échange
+			int[] windows = new int[Math.max(0, length - order + 1)];
+			int[] windowMarks = new int[windows.length];
+			int mark = 0;
+			boolean improved = true;
+			while(improved) {
+				improved = false;
+				for(int first = 0; first < DIGRAM_COUNT; ++first) {
+					for(int second = first + 1; second < DIGRAM_COUNT; ++second) {
+						if(positions[first].length == 0 && positions[second].length == 0) {
+							continue;
+						}
+						++mark;
+						int windowCount = 0;
+						windowCount = addWindows(positions[first], order, windows, windowCount, windowMarks, mark);
+						windowCount = addWindows(positions[second], order, windows, windowCount, windowMarks, mark);
+						double oldScore = windowsScore(plainText, windows, windowCount);
+						swap(key, first, second);
+						setPlainChars(plainText, positions[first], key[first]);
+						setPlainChars(plainText, positions[second], key[second]);
+						if(windowsScore(plainText, windows, windowCount) > oldScore) {
+							improved = true;
+						}else {
+							swap(key, first, second);
+							setPlainChars(plainText, positions[first], key[first]);
+							setPlainChars(plainText, positions[second], key[second]);
+						}
+					}
+				}
+			}
+			return new Climb(key, scorer.score(plainText, length));
+		}
+
+		/**
+		 * Ajoute aux n-grammes touchés ceux qui contiennent l'une des positions données
+		 * et qui n'ont pas encore été ajoutés pour l'échange en cours.
+		 * @param positions les positions des caractères modifiés
+		 * @param order la longueur des n-grammes
+		 * @param windows les positions de début des n-grammes touchés
+		 * @param windowCount le nombre de n-grammes touchés déjà ajoutés
+		 * @param windowMarks le numéro du dernier échange ayant touché chaque n-gramme
+		 * @param mark le numéro de l'échange en cours
+		 * @return le nouveau nombre de n-grammes touchés
+		 */
+		private int addWindows(int[] positions, int order, int[] windows, int windowCount, int[] windowMarks, int mark) {
+			for(int position : positions) {
+				int end = Math.min(position, windows.length - 1);
+				for(int start = Math.max(0, position - order + 1); start <= end; ++start) {
+					if(windowMarks[start] != mark) {
+						windowMarks[start] = mark;
+						windows[windowCount++] = start;
+					}
+				}
+			}
+			return windowCount;
+		}
+
+		/**
+		 * Retourne la somme des scores des n-grammes donnés.
+		 * @param plainText le texte déchiffré
+		 * @param windows les positions de début des n-grammes
+		 * @param windowCount le nombre de n-grammes
+		 * @return la somme des logarithmes de leurs probabilités
+		 */
+		private double windowsScore(byte[] plainText, int[] windows, int windowCount) {
+			double score = 0;
+			for(int i = 0; i < windowCount; ++i) {
+				score += scorer.logProbability(plainText, windows[i]);
+			}
+			return score;
+		}
+
+		/**
+		 * Écrit le caractère d'un digramme à toutes ses positions dans le texte déchiffré.
+		 * @param plainText le texte déchiffré
+		 * @param positions les positions du digramme
+		 * @param plainChar la position dans KEY_CHARS du caractère du digramme
+		 */
+		private void setPlainChars(byte[] plainText, int[] positions, byte plainChar) {
+			for(int position : positions) {
+				plainText[position] = plainChar;
+			}
+		}
+	}
+
+	/**
+	 * Échange deux éléments d'un tableau.
+	 * @param array le tableau
+	 * @param i la position du premier élément
+	 * @param j la position du second élément
+	 */
+	private static void swap(byte[] array, int i, int j) {
+		byte tmp = array[i];
+		array[i] = array[j];
+		array[j] = tmp;
+	}
+
+	/**
+	 * Clé atteinte par une montée et score du texte qu'elle donne.
+	 */
+	private static final class Climb {
+		private final byte[] key;
+		private final double score;
+
+		/**
+		 * Construit le résultat d'une montée.
+		 * @param key le caractère de chaque digramme
+		 * @param score le score du texte déchiffré
+		 */
+		private Climb(byte[] key, double score) {
+			this.key = key;
+			this.score = score;
+		}
+	}
+
+	/**
+	 * Tâche qui exécute une tranche des montées, en la divisant en deux sous-tâches
+	 * tant qu'elle en contient plus d'une.
+	 */
+	private static final class RestartTask extends RecursiveTask<Climb> {
+		private static final long serialVersionUID = 1L;
+		private final transient Search search;
+		private final int start;
+		private final int end;
+
+		/**
+		 * Construit une tâche pour les montées [start, end[.
+		 * @param search les données de la recherche
+		 * @param start le numéro de la première montée
+		 * @param end le numéro suivant la dernière montée
+		 */
+		private RestartTask(Search search, int start, int end) {
+			this.search = search;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected Climb compute() {
+			if(end - start == 1) {
+				return search.climb(start);
+			}
+			int middle = (start + end) >>> 1;
+			RestartTask left = new RestartTask(search, start, middle);
+			RestartTask right = new RestartTask(search, middle, end);
+			invokeAll(left, right);
+			//La première montée l'emporte en cas d'égalité
+			return right.join().score > left.join().score ? right.join() : left.join();
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package crypto;
+
+/**
+ * Filtre du texte à déchiffrer : ne conserve que les lettres A, D, F, G, V et X,
+ * remplacées par leur position dans ADFGVX (0 à 5), et retire tous les autres caractères.
+ *
+ * Adfgvx utilise le noyau vectoriel AdfgvxVectorFilter s'il est disponible,
+ * sinon sa version scalaire.
+ */
+interface AdfgvxSymbolFilter {
+
+	/**
+	 * Filtre les caractères ISO-8859-1 d'un texte à déchiffrer.
+	 * @param text les caractères du texte, un octet par caractère
+	 * @param length le nombre de caractères du texte
+	 * @param symbols le tableau dans lequel écrire la position dans ADFGVX de chaque
+	 * caractère conservé, éventuellement le tableau du texte lui-même
+	 * @return le nombre de caractères conservés
+	 */
+	int filterSymbols(byte[] text, int length, byte[] symbols);
+}
@@ -0,0 +1,372 @@
+package crypto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Brute-force search of the transposition key of an ADFGVX cryptogram whose
+ * substitution key is known, for cryptanalysis exercises.
+ *
+ * Only the reading order of the columns matters, so the k! orders of the columns of
+ * a key of length k are tried, and the one giving the plaintext with the best score
+ * for an {@link AdfgvxNgramScorer} is kept. The orders are numbered by their Lehmer
+ * code, and the range of numbers is split between the tasks of a fork-join pool.
+ * Each task undoes the transposition of every candidate of its slice into the same
+ * buffers, so that the search does not allocate memory per candidate.
+ *
+ * The search is exhaustive: it stays practical up to keys of 10 or 11 letters.
+ */
+public final class AdfgvxTranspositionSearch {
+
+	/**
+	 * Longest transposition key that can be searched: 20! is the largest factorial of a long.
+	 */
+	public static final int MAX_KEY_LENGTH = 20;
+	/**
+	 * Number of candidate orders tried by each fork-join task of the search.
+	 */
+	public static final int SEARCH_SLICE_LENGTH = 1 << 12;
+
+	private final String substitutionKey;
+	private final AdfgvxNgramScorer scorer;
+	//Position dans KEY_CHARS du caractère associé à chaque digramme, indexé par rangée * 6 + colonne
+	private final byte[] plainSymbols;
+
+	/**
+	 * Prepares the search of the transposition keys for a known substitution key.
+	 *
+	 * @param substitutionKey the substitution key of the cryptograms
+	 * @param scorer the model scoring the candidate plaintexts
+	 * @throws NullPointerException if the key or the scorer is null
+	 * @throws IllegalArgumentException if the substitution key is not valid
+	 */
+	public AdfgvxTranspositionSearch(String substitutionKey, AdfgvxNgramScorer scorer) {
+		if(scorer == null) throw new NullPointerException();
+		//Validation de la clé de substitution, avec une clé de transposition quelconque
+		new Adfgvx(substitutionKey, "A");
+		this.substitutionKey = substitutionKey;
+		this.scorer = scorer;
+		this.plainSymbols = new byte[substitutionKey.length()];
+		for(int i = 0; i < plainSymbols.length; ++i) {
+			this.plainSymbols[i] = (byte) AdfgvxNgramScorer.symbol(substitutionKey.charAt(i));
+		}
+	}
+
+	/**
+	 * Searches the transposition keys of the given length on the common fork-join pool.
+	 *
+	 * @param cryptogram the ADFGVX cryptogram
+	 * @param keyLength the length of the transposition key
+	 * @return the best key found
+	 * @throws NullPointerException if the cryptogram is null
+	 * @throws IllegalArgumentException if the key length is not between 1 and {@link #MAX_KEY_LENGTH}
+	 * or the cryptogram cannot have been encrypted with a key of this length
+	 */
+	public Result search(String cryptogram, int keyLength) {
+		return search(cryptogram, keyLength, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Searches the transposition keys of the given length on the given fork-join pool.
+	 * When several keys give the same score, the one with the smallest Lehmer number is
+	 * returned, so that the result does not depend on the number of threads.
+	 *
+	 * @param cryptogram the ADFGVX cryptogram
+	 * @param keyLength the length of the transposition key
+	 * @param pool the pool running the search
+	 * @return the best key found
+	 * @throws NullPointerException if the cryptogram or the pool is null
+	 * @throws IllegalArgumentException if the key length is not between 1 and {@link #MAX_KEY_LENGTH}
+	 * or the cryptogram cannot have been encrypted with a key of this length
+	 */
+	public Result search(String cryptogram, int keyLength, ForkJoinPool pool) {
+		if(cryptogram == null || pool == null) throw new NullPointerException();
+		byte[] symbols = cryptogram.getBytes(StandardCharsets.ISO_8859_1);
+		int length = Adfgvx.removeIllegalCharacters(symbols, symbols.length, symbols);
+		if(keyLength < 1 || keyLength > MAX_KEY_LENGTH || length % keyLength != 0) {
+			throw new IllegalArgumentException();
+		}
+		Search search = new Search(symbols, length, keyLength);
+		long best = pool.invoke(new SearchTask(search, 0, factorial(keyLength))).index;
+		int[] columnOrder = new int[keyLength];
+		permutation(best, columnOrder);
+		//La colonne lue en i-ème position reçoit la i-ème lettre de l'alphabet
+		char[] transpositionKey = new char[keyLength];
+		for(int rank = 0; rank < keyLength; ++rank) {
+			transpositionKey[columnOrder[rank]] = (char) ('A' + rank);
+		}
+		Adfgvx cypher = new Adfgvx(substitutionKey, new String(transpositionKey));
+		String plainText = cypher.decrypt(cryptogram);
+		return new Result(new String(transpositionKey), plainText, scorer.score(plainText));
+	}
+
+	/**
+	 * Retourne la factorielle d'un entier.
+	 * @param n l'entier, au plus MAX_KEY_LENGTH
+	 * @return n!
+	 */
+	private static long factorial(int n) {
+		long factorial = 1;
+		for(int i = 2; i <= n; ++i) {
+			factorial *= i;
+		}
+		return factorial;
+	}
+
+	/**
+	 * Écrit la permutation de numéro donné dans l'ordre lexicographique, à partir de son
+	 * code de Lehmer : le i-ème chiffre, en base (n - i), est le rang de permutation[i]
+	 * parmi les valeurs qui ne sont pas encore placées.
+	 * @param index le numéro de la permutation, inférieur à n!
+	 * @param permutation le tableau de longueur n dans lequel écrire la permutation
+	 */
+	static void permutation(long index, int[] permutation) {
+		int n = permutation.length;
+		long factorial = factorial(n - 1);
+		//Valeurs encore libres, dans l'ordre croissant
+		int[] free = new int[n];
+		for(int i = 0; i < n; ++i) {
+			free[i] = i;
+		}
+		for(int i = 0; i < n; ++i) {
+			int digit = (int) (index / factorial);
+			index %= factorial;
+			permutation[i] = free[digit];
+			System.arraycopy(free, digit + 1, free, digit, n - i - digit - 1);
+			if(i < n - 1) {
+				factorial /= n - 1 - i;
+			}
+		}
+	}
+
+	/**
+	 * Remplace la permutation par la suivante dans l'ordre lexicographique, dont le
+	 * numéro est celui de la permutation plus un.
+	 * @param permutation la permutation, qui n'est pas la dernière
+	 */
+	static void nextPermutation(int[] permutation) {
+		int i = permutation.length - 2;
+		while(permutation[i] > permutation[i + 1]) {
+			--i;
+		}
+		int j = permutation.length - 1;
+		while(permutation[j] < permutation[i]) {
+			--j;
+		}
+		swap(permutation, i, j);
+		for(int left = i + 1, right = permutation.length - 1; left < right; ++left, --right) {
+			swap(permutation, left, right);
+		}
+	}
+
+	/**
+	 * Échange deux éléments d'un tableau.
+	 * @param array le tableau
+	 * @param i la position du premier élément
+	 * @param j la position du second élément
+	 */
+	private static void swap(int[] array, int i, int j) {
+		int tmp = array[i];
+		array[i] = array[j];
+		array[j] = tmp;
+	}
+
+	/**
+	 * Best transposition key found by a search.
+	 */
+	public static final class Result {
+		private final String transpositionKey;
+		private final String plainText;
+		private final double score;
+
+		/**
+		 * Construit le résultat d'une recherche.
+		 * @param transpositionKey la clé de transposition trouvée
+		 * @param plainText le texte déchiffré avec cette clé
+		 * @param score le score du texte déchiffré
+		 */
+		private Result(String transpositionKey, String plainText, double score) {
+			this.transpositionKey = transpositionKey;
+			this.plainText = plainText;
+			this.score = score;
+		}
+
+		/**
+		 * Returns a transposition key reading the columns in the order found. Any key
+		 * whose letters have the same alphabetical order is equivalent.
+		 *
+		 * @return the transposition key, made of the first letters of the alphabet
+		 */
+		public String getTranspositionKey() {
+			return transpositionKey;
+		}
+
+		/**
+		 * Returns the cryptogram decrypted with the key found.
+		 *
+		 * @return the decrypted text
+		 */
+		public String getPlainText() {
+			return plainText;
+		}
+
+		/**
+		 * Returns the score of the decrypted text.
+		 *
+		 * @return the score given by the scorer of the search
+		 */
+		public double getScore() {
+			return score;
+		}
+	}
+
+	/**
+	 * Données d'une recherche partagées par toutes ses tâches : le cryptogramme réduit
+	 * aux positions de ses symboles dans ADFGVX.
+	 */
+	private final class Search {
+		private final byte[] symbols;
+		private final int keyLength;
+		private final int rowCount;
+		private final int plainLength;
+
+		/**
+		 * Construit les données d'une recherche.
+		 * @param symbols les positions dans ADFGVX des symboles du cryptogramme
+		 * @param length le nombre de symboles, multiple de la longueur de la clé
+		 * @param keyLength la longueur de la clé
+		 */
+		private Search(byte[] symbols, int length, int keyLength) {
+			this.symbols = symbols;
+			this.keyLength = keyLength;
+			this.rowCount = length / keyLength;
+			this.plainLength = length / 2;
+		}
+
+		/**
+		 * Essaie les ordres de colonnes numérotés de start à end (exclu) et retourne
+		 * le numéro de celui qui donne le meilleur score, le premier en cas d'égalité.
+		 * Les tampons de la tranche sont alloués pour elle seule : rien ne reste attaché
+		 * aux threads du pool une fois la recherche terminée.
+		 * @param start le numéro du premier ordre
+		 * @param end le numéro suivant le dernier ordre
+		 * @return le numéro du meilleur ordre et son score
+		 */
+		private Candidate searchSlice(long start, long end) {
+			Workspace workspace = new Workspace();
+			int[] columnOrder = workspace.columnOrder;
+			int[] columnStart = workspace.columnStart;
+			byte[] plainText = workspace.plainText;
+			permutation(start, columnOrder);
+			long bestIndex = start;
+			double bestScore = Double.NEGATIVE_INFINITY;
+			for(long index = start; index < end; ++index) {
+				if(index != start) {
+					nextPermutation(columnOrder);
+				}
+				//La colonne lue en rang-ième position commence à rang * rowCount dans le cryptogramme
+				for(int rank = 0; rank < keyLength; ++rank) {
+					columnStart[columnOrder[rank]] = rank * rowCount;
+				}
+				invertTransposition(columnStart, plainText);
+				double score = scorer.score(plainText, plainLength);
+				if(score > bestScore) {
+					bestScore = score;
+					bestIndex = index;
+				}
+			}
+			return new Candidate(bestIndex, bestScore);
+		}
+
+		/**
+		 * Inverse la transposition et la substitution du cryptogramme pour un ordre des
+		 * colonnes : le symbole à la rangée r et la colonne c du tableau de transposition
+		 * est à la position columnStart[c] + r du cryptogramme.
+		 * @param columnStart la position dans le cryptogramme du début de chaque colonne
+		 * @param plainText le tableau dans lequel écrire la position dans KEY_CHARS des caractères du texte
+		 */
+		private void invertTransposition(int[] columnStart, byte[] plainText) {
+			byte[] symbols = this.symbols;
+			byte[] plainSymbols = AdfgvxTranspositionSearch.this.plainSymbols;
+			int row = 0;
+			int colNum = 0;
+			for(int i = 0; i < plainLength; ++i) {
+				int first = symbols[columnStart[colNum] + row];
+				if(++colNum == keyLength) {
+					colNum = 0;
+					++row;
+				}
+				int second = symbols[columnStart[colNum] + row];
+				if(++colNum == keyLength) {
+					colNum = 0;
+					++row;
+				}
+				plainText[i] = plainSymbols[first * 6 + second];
+			}
+		}
+
+		/**
+		 * Tampons d'une tranche, réutilisés pour chaque ordre de colonnes qu'elle essaie.
+		 */
+		private final class Workspace {
+			private final int[] columnOrder = new int[keyLength];
+			private final int[] columnStart = new int[keyLength];
+			private final byte[] plainText = new byte[plainLength];
+		}
+	}
+
+	/**
+	 * Numéro d'un ordre de colonnes et score du texte qu'il donne.
+	 */
+	private static final class Candidate {
+		private final long index;
+		private final double score;
+
+		/**
+		 * Construit un candidat.
+		 * @param index le numéro de l'ordre des colonnes
+		 * @param score le score du texte déchiffré
+		 */
+		private Candidate(long index, double score) {
+			this.index = index;
+			this.score = score;
+		}
+	}
+
+	/**
+	 * Tâche qui essaie une tranche des ordres de colonnes, en la divisant en deux
+	 * sous-tâches tant qu'elle est plus longue que SEARCH_SLICE_LENGTH.
+	 */
+	private static final class SearchTask extends RecursiveTask<Candidate> {
+		private static final long serialVersionUID = 1L;
+		private final transient Search search;
+		private final long start;
+		private final long end;
+
+		/**
+		 * Construit une tâche pour la tranche [start, end[ des ordres de colonnes.
+		 * @param search les données de la recherche
+		 * @param start le numéro du premier ordre
+		 * @param end le numéro suivant le dernier ordre
+		 */
+		private SearchTask(Search search, long start, long end) {
+			this.search = search;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected Candidate compute() {
+			if(end - start <= SEARCH_SLICE_LENGTH) {
+				return search.searchSlice(start, end);
+			}
+			long middle = (start + end) >>> 1;
+			SearchTask left = new SearchTask(search, start, middle);
+			SearchTask right = new SearchTask(search, middle, end);
+			invokeAll(left, right);
+			//Le premier candidat de la tranche l'emporte en cas d'égalité
+			return right.join().score > left.join().score ? right.join() : left.join();
+		}
+	}
+}
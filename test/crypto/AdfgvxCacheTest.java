@@ -0,0 +1,70 @@
+package crypto;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdfgvxCacheTest {
+	private static final String SUBSTITUTION_KEY = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+	
+	@Test
+	void sameKeysReturnSameInstance() {
+		AdfgvxCache cache = new AdfgvxCache(10);
+		Adfgvx cypher = cache.get(SUBSTITUTION_KEY, "BRUTES");
+		assertSame(cypher, cache.get(SUBSTITUTION_KEY, "BRUTES"));
+		assertEquals(1, cache.hitCount());
+		assertEquals(1, cache.missCount());
+		assertEquals(1, cache.size());
+	}
+	
+	@Test
+	void leastRecentlyUsedIsEvicted() {
+		AdfgvxCache cache = new AdfgvxCache(2);
+		Adfgvx brutes = cache.get(SUBSTITUTION_KEY, "BRUTES");
+		Adfgvx brute = cache.get(SUBSTITUTION_KEY, "BRUTE");
+		cache.get(SUBSTITUTION_KEY, "BRUTES");
+		cache.get(SUBSTITUTION_KEY, "KEY");
+		assertEquals(1, cache.evictionCount());
+		assertEquals(2, cache.size());
+		assertSame(brutes, cache.get(SUBSTITUTION_KEY, "BRUTES"));
+		assertNotSame(brute, cache.get(SUBSTITUTION_KEY, "BRUTE"));
+		assertEquals(2, cache.hitCount());
+		assertEquals(4, cache.missCount());
+	}
+	
+	@Test
+	void sizeStaysBounded() {
+		AdfgvxCache cache = new AdfgvxCache(1000);
+		String letters = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+		for(int i = 0; i < letters.length(); ++i) {
+			for(int j = 0; j < letters.length(); ++j) {
+				for(int k = 0; k < 4; ++k) {
+					if(i != j && j != k && i != k) {
+						cache.get(SUBSTITUTION_KEY, "" + letters.charAt(i) + letters.charAt(j) + letters.charAt(k));
+					}
+				}
+			}
+		}
+		assertEquals(1000, cache.size());
+		assertEquals(cache.missCount() - 1000, cache.evictionCount());
+	}
+	
+	@Test
+	void invalidKeysAreRejected() {
+		AdfgvxCache cache = new AdfgvxCache(10);
+		assertThrows(IllegalArgumentException.class, ()->{
+			cache.get(SUBSTITUTION_KEY, "BRUTEB");
+		});
+		assertThrows(NullPointerException.class, ()->{
+			cache.get(null, "BRUTES");
+		});
+		assertEquals(0, cache.size());
+	}
+	
+	@Test
+	void invalidMaxSize() {
+		assertThrows(IllegalArgumentException.class, ()->{
+			new AdfgvxCache(0);
+		});
+	}
+}
@@ -0,0 +1,53 @@
+package crypto;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdfgvxKeyScheduleTest {
+	private static final String SUBSTITUTION_KEY = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+	private static final String TRANSPOSITION_KEY = "BRUTES";
+	private static final String MESSAGE = "DEMANDE RENFORTS D'URGENCE";
+	
+	@Test
+	void scheduleEncryptsAsTheKeys() {
+		Adfgvx cypher = new Adfgvx(SUBSTITUTION_KEY, TRANSPOSITION_KEY);
+		Adfgvx scheduled = new Adfgvx(cypher.getKeySchedule());
+		assertEquals(cypher.encrypt(MESSAGE), scheduled.encrypt(MESSAGE));
+		assertEquals(cypher.decrypt(cypher.encrypt(MESSAGE)), scheduled.decrypt(cypher.encrypt(MESSAGE)));
+		assertEquals(cypher.getKeySchedule(), scheduled.getKeySchedule());
+		assertEquals(TRANSPOSITION_KEY.length(), scheduled.getKeySchedule().getKeyLength());
+	}
+	
+	@Test
+	void writeAndReadSchedule() {
+		AdfgvxKeySchedule schedule = new Adfgvx(SUBSTITUTION_KEY, "ABCDEFGHIJKLMNOPQRSTUVWXYZ").getKeySchedule();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(2 * AdfgvxKeySchedule.SERIALIZED_LENGTH);
+		buffer.put((byte) 1).put((byte) 2);
+		schedule.writeTo(buffer);
+		assertEquals(2 + AdfgvxKeySchedule.SERIALIZED_LENGTH, buffer.position());
+		buffer.position(2);
+		AdfgvxKeySchedule read = AdfgvxKeySchedule.readFrom(buffer);
+		assertEquals(schedule, read);
+		assertArrayEquals(schedule.toByteArray(), read.toByteArray());
+		assertEquals(AdfgvxKeySchedule.SERIALIZED_LENGTH, schedule.toByteArray().length);
+	}
+	
+	@Test
+	void corruptedScheduleRejected() {
+		byte[] bytes = new Adfgvx(SUBSTITUTION_KEY, TRANSPOSITION_KEY).getKeySchedule().toByteArray();
+		int[] corruptedOffsets = {0, 4, 5, 6, 6 + 36, 6 + 72, 6 + 72 + TRANSPOSITION_KEY.length()};
+		for(int offset : corruptedOffsets) {
+			byte[] corrupted = bytes.clone();
+			corrupted[offset] ^= 0x40;
+			assertThrows(IllegalArgumentException.class, ()->{
+				AdfgvxKeySchedule.fromByteArray(corrupted);
+			});
+		}
+		assertThrows(IllegalArgumentException.class, ()->{
+			AdfgvxKeySchedule.fromByteArray(new byte[10]);
+		});
+	}
+}
@@ -0,0 +1,111 @@
+package crypto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdfgvxKeyStoreTest {
+	private static final String SUBSTITUTION_KEY = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+	private static final String OTHER_SUBSTITUTION_KEY = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+	private static final String MESSAGE = "DEMANDE RENFORTS D'URGENCE";
+
+	@Test
+	void viewEncryptsAsTheKeysOfEachTenant() throws IOException {
+		Adfgvx[] cyphers = {
+				new Adfgvx(SUBSTITUTION_KEY, "BRUTES"),
+				new Adfgvx(OTHER_SUBSTITUTION_KEY, "CHARGEONS"),
+				new Adfgvx(SUBSTITUTION_KEY, "ABCDEFGHIJKLMNOPQRSTUVWXYZ"),
+				new Adfgvx(OTHER_SUBSTITUTION_KEY, "SBRUTE")};
+		Path path = Files.createTempFile("adfgvx", ".keys");
+		try(AdfgvxKeyStore store = new AdfgvxKeyStore(path, 1000)) {
+			for(int i = 0; i < cyphers.length; ++i) {
+				store.put(i * 333, cyphers[i].getKeySchedule());
+			}
+			AdfgvxKeyStore.View view = store.view();
+			//Chaque locataire est sélectionné deux fois pour réutiliser les tables de la vue
+			for(int round = 0; round < 2; ++round) {
+				for(int i = 0; i < cyphers.length; ++i) {
+					String cryptogram = cyphers[i].encrypt(MESSAGE);
+					assertEquals(i * 333, view.select(i * 333).getTenant());
+					assertEquals(cryptogram, view.encrypt(MESSAGE));
+					assertEquals(cyphers[i].decrypt(cryptogram), view.decrypt(cryptogram));
+				}
+			}
+		}finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	void selectionLeavesInstancesUnchanged() throws IOException {
+		Path path = Files.createTempFile("adfgvx", ".keys");
+		try(AdfgvxKeyStore store = new AdfgvxKeyStore(path, 10)) {
+			store.put(0, new Adfgvx(SUBSTITUTION_KEY, "BRUTES").getKeySchedule());
+			store.put(1, new Adfgvx(OTHER_SUBSTITUTION_KEY, "SBRUTE").getKeySchedule());
+			AdfgvxKeyStore.View view = store.view();
+			Adfgvx first = new Adfgvx(store.get(0));
+			String cryptogram = view.select(0).encrypt(MESSAGE);
+			//La vue ne vaut que jusqu'à la sélection suivante, l'objet Adfgvx garde ses clés
+			view.select(1);
+			assertNotEquals(cryptogram, view.encrypt(MESSAGE));
+			assertEquals(cryptogram, first.encrypt(MESSAGE));
+			assertEquals(store.get(0), first.getKeySchedule());
+		}finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	void recordsKeptWhenStoreOpenedAgain() throws IOException {
+		AdfgvxKeySchedule schedule = new Adfgvx(SUBSTITUTION_KEY, "BRUTES").getKeySchedule();
+		Path path = Files.createTempFile("adfgvx", ".keys");
+		try {
+			try(AdfgvxKeyStore store = new AdfgvxKeyStore(path, 10)) {
+				store.put(7, schedule);
+				store.force();
+			}
+			assertEquals(10L * AdfgvxKeyStore.RECORD_STRIDE, Files.size(path));
+			try(AdfgvxKeyStore store = new AdfgvxKeyStore(path, 20)) {
+				assertEquals(20, store.capacity());
+				assertTrue(store.contains(7));
+				assertFalse(store.contains(15));
+				assertEquals(schedule, store.get(7));
+				store.remove(7);
+				assertFalse(store.contains(7));
+			}
+		}finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	void missingOrCorruptedTenantRejected() throws IOException {
+		Path path = Files.createTempFile("adfgvx", ".keys");
+		try(AdfgvxKeyStore store = new AdfgvxKeyStore(path, 10)) {
+			store.put(1, new Adfgvx(SUBSTITUTION_KEY, "BRUTES").getKeySchedule());
+			AdfgvxKeyStore.View view = store.view();
+			assertThrows(IllegalStateException.class, () -> view.encrypt(MESSAGE));
+			assertThrows(NoSuchElementException.class, () -> view.select(0));
+			assertThrows(IndexOutOfBoundsException.class, () -> view.select(10));
+			assertThrows(IndexOutOfBoundsException.class, () -> store.get(-1));
+			assertEquals(-1, view.getTenant());
+			try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+				//Deux digrammes de la table de chiffrement rendus égaux
+				channel.write(ByteBuffer.wrap(new byte[] {0, 0}), AdfgvxKeyStore.RECORD_STRIDE + 6);
+			}
+			assertThrows(IllegalStateException.class, () -> view.select(1));
+			assertThrows(IllegalStateException.class, () -> store.get(1));
+			assertThrows(IllegalArgumentException.class, () -> new AdfgvxKeyStore(path, 0));
+		}finally {
+			Files.delete(path);
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package crypto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdfgvxMetricsTest {
+	private static final String SUBSTITUTION_KEY = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+	private static final String TRANSPOSITION_KEY = "BRUTES";
+	private static final String MESSAGE = "DEMANDE RENFORTS D'URGENCE";
+	private static final String CRYPTOGRAM = "VDGXX-VVXFV-GVXXX-XDFGD-GDAXX-DGFFG-DXGDG-FXGGG-GXXGV-DGG";
+
+	@Test
+	void operationsCounted() throws Exception {
+		AdfgvxMetrics metrics = new AdfgvxMetrics();
+		Adfgvx cypher = new Adfgvx(SUBSTITUTION_KEY, TRANSPOSITION_KEY).withMetrics(metrics);
+		assertSame(metrics, cypher.getMetrics());
+		assertSame(metrics, cypher.withoutGrouping().getMetrics());
+		assertEquals(CRYPTOGRAM, cypher.encrypt(MESSAGE));
+		assertEquals(24, cypher.decrypt(CRYPTOGRAM).length());
+		cypher.encryptBatch(List.of(MESSAGE, MESSAGE));
+		ByteBuffer dst = ByteBuffer.allocate(100);
+		cypher.decrypt(ByteBuffer.wrap(CRYPTOGRAM.getBytes(StandardCharsets.US_ASCII)), dst);
+		assertThrows(IllegalArgumentException.class, () -> cypher.decrypt("ADFGV"));
+		assertThrows(IllegalArgumentException.class, () -> cypher.decryptBatch(List.of(CRYPTOGRAM, "ADFGV")));
+
+		assertEquals(3, metrics.getEncryptionCount());
+		assertEquals(3, metrics.getDecryptionCount());
+		assertEquals(2, metrics.getRejectedInputCount());
+		assertEquals(3L * MESSAGE.length() + 3L * CRYPTOGRAM.length(), metrics.getInputCharacterCount());
+		assertEquals(3L * CRYPTOGRAM.length() + 3L * 24, metrics.getOutputCharacterCount());
+		assertEquals(3, metrics.getPhaseCount(AdfgvxMetrics.Phase.CLEAN));
+		assertEquals(3, metrics.getPhaseCount(AdfgvxMetrics.Phase.ENCIPHER));
+		assertEquals(3, metrics.getPhaseCount(AdfgvxMetrics.Phase.FORMAT));
+		//Les cryptogrammes rejetés ne comptent pas dans la durée de la validation
+		assertEquals(3, metrics.getPhaseCount(AdfgvxMetrics.Phase.VALIDATE));
+		assertEquals(3, metrics.getPhaseCount(AdfgvxMetrics.Phase.TRANSPOSE));
+		assertEquals(3, metrics.getPhaseCount(AdfgvxMetrics.Phase.SUBSTITUTE));
+		assertEquals(AdfgvxMetrics.HISTOGRAM_BUCKET_COUNT, metrics.getLatencyHistogram(AdfgvxMetrics.Phase.CLEAN).length);
+
+		metrics.reset();
+		assertEquals(0, metrics.getEncryptionCount());
+		assertEquals(0, metrics.getPhaseCount(AdfgvxMetrics.Phase.VALIDATE));
+		assertEquals(0, metrics.getPhaseTotalNanos(AdfgvxMetrics.Phase.ENCIPHER));
+	}
+
+	@Test
+	void streamsCountedAsStrings() throws Exception {
+		AdfgvxMetrics stringMetrics = new AdfgvxMetrics();
+		Adfgvx cypher = new Adfgvx(SUBSTITUTION_KEY, TRANSPOSITION_KEY).withMetrics(stringMetrics);
+		cypher.encrypt(MESSAGE);
+		cypher.decrypt(CRYPTOGRAM);
+		AdfgvxMetrics streamMetrics = new AdfgvxMetrics();
+		Adfgvx streamCypher = new Adfgvx(SUBSTITUTION_KEY, TRANSPOSITION_KEY).withMetrics(streamMetrics);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		streamCypher.encrypt(new ByteArrayInputStream(MESSAGE.getBytes(StandardCharsets.UTF_8)), out);
+		assertEquals(CRYPTOGRAM + "\n", out.toString(StandardCharsets.US_ASCII));
+		streamCypher.decrypt(new ByteArrayInputStream(out.toByteArray()), new ByteArrayOutputStream());
+
+		assertEquals(stringMetrics.getEncryptionCount(), streamMetrics.getEncryptionCount());
+		assertEquals(stringMetrics.getDecryptionCount(), streamMetrics.getDecryptionCount());
+		//Les caractères ignorés par le nettoyage et les tirets comptent dans l'entrée
+		assertEquals(MESSAGE.length() + CRYPTOGRAM.length(), streamMetrics.getInputCharacterCount());
+		assertEquals(stringMetrics.getInputCharacterCount(), streamMetrics.getInputCharacterCount());
+		assertEquals(stringMetrics.getOutputCharacterCount(), streamMetrics.getOutputCharacterCount());
+	}
+
+	@Test
+	void disabledMetricsNotUpdated() {
+		AdfgvxMetrics metrics = new AdfgvxMetrics();
+		Adfgvx cypher = new Adfgvx(SUBSTITUTION_KEY, TRANSPOSITION_KEY).withMetrics(metrics).withMetrics(null);
+		assertNull(cypher.getMetrics());
+		assertNull(new Adfgvx(SUBSTITUTION_KEY, TRANSPOSITION_KEY).getMetrics());
+		assertEquals(CRYPTOGRAM, cypher.encrypt(MESSAGE));
+		assertThrows(IllegalArgumentException.class, () -> cypher.decrypt("ADFGV"));
+		assertEquals(0, metrics.getEncryptionCount());
+		assertEquals(0, metrics.getRejectedInputCount());
+		assertEquals(0, Arrays.stream(metrics.getLatencyHistogram(AdfgvxMetrics.Phase.CLEAN)).sum());
+	}
+
+	@Test
+	void metricsPublishedThroughJmx() throws Exception {
+		AdfgvxMetrics metrics = new AdfgvxMetrics();
+		Adfgvx cypher = new Adfgvx(SUBSTITUTION_KEY, TRANSPOSITION_KEY).withMetrics(metrics);
+		ObjectName name = metrics.register("test");
+		try {
+			assertThrows(IllegalStateException.class, () -> metrics.register("test"));
+			cypher.encrypt(MESSAGE);
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			assertEquals(1L, server.getAttribute(name, "EncryptionCount"));
+			long[] histogram = (long[]) server.invoke(name, "getLatencyHistogram",
+					new Object[] {"ENCIPHER"}, new String[] {String.class.getName()});
+			assertEquals(1, Arrays.stream(histogram).sum());
+		}finally {
+			metrics.unregister();
+		}
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+	}
+}
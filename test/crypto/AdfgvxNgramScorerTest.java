@@ -0,0 +1,46 @@
+package crypto;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdfgvxNgramScorerTest {
+	//Texte d'exemple en français, assez long pour les bigrammes et les trigrammes
+	static final String SAMPLE = "Le général a reçu l'ordre de tenir la position jusqu'à l'arrivée des renforts. "
+			+ "Les troupes ennemies se sont repliées vers le nord pendant la nuit, mais leurs batteries "
+			+ "continuent de bombarder la route qui mène au village. Demandons des munitions et des vivres "
+			+ "pour trois jours, ainsi que deux sections de mitrailleuses. La liaison avec le quartier "
+			+ "général est interrompue depuis ce matin ; les messages passent par les coureurs. "
+			+ "Le commandant de la division attend votre réponse avant l'aube. Si les renforts ne "
+			+ "peuvent pas arriver à temps, nous devrons abandonner la colline et rejoindre la seconde "
+			+ "ligne de défense, à l'est de la rivière. Les pertes sont lourdes et les blessés doivent "
+			+ "être évacués par le chemin de fer dès que possible. Envoyez aussi des médecins. "
+			+ "Nous tiendrons aussi longtemps que possible, mais la situation devient critique.";
+	
+	@Test
+	void frenchTextScoresHigherThanShuffledText() {
+		AdfgvxNgramScorer scorer = new AdfgvxNgramScorer(3, SAMPLE);
+		assertEquals(3, scorer.getOrder());
+		assertTrue(scorer.score("DEMANDE RENFORTS") > scorer.score("EDNMRDAE ENOFTRS"));
+	}
+	
+	@Test
+	void scoreIsCleanedLikeTheTextToEncrypt() {
+		AdfgvxNgramScorer scorer = new AdfgvxNgramScorer(2, SAMPLE);
+		assertEquals(scorer.score("GENERAL"), scorer.score("général !"));
+		assertEquals(0.0, scorer.score("A"));
+	}
+	
+	@Test
+	void invalidOrder() {
+		assertThrows(IllegalArgumentException.class, ()->{
+			new AdfgvxNgramScorer(0, SAMPLE);
+		});
+		assertThrows(IllegalArgumentException.class, ()->{
+			new AdfgvxNgramScorer(AdfgvxNgramScorer.MAX_ORDER + 1, SAMPLE);
+		});
+		assertThrows(IllegalArgumentException.class, ()->{
+			new AdfgvxNgramScorer(4, "ABC");
+		});
+	}
+}
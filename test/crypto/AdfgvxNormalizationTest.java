@@ -0,0 +1,105 @@
+package crypto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdfgvxNormalizationTest {
+	private static final String SUBSTITUTION_KEY = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+	private static final String TRANSPOSITION_KEY = "BRUTES";
+	
+	@Test
+	void defaultProfileDropsLigaturesAndEnye() {
+		assertArrayEquals(new char[0], AdfgvxNormalization.DEFAULT.normalize('Œ'));
+		assertArrayEquals(new char[0], AdfgvxNormalization.DEFAULT.normalize('ñ'));
+		assertArrayEquals(new char[] {'S', 'S'}, AdfgvxNormalization.DEFAULT.normalize('ß'));
+		assertArrayEquals(new char[] {'E'}, AdfgvxNormalization.DEFAULT.normalize('é'));
+	}
+	
+	@Test
+	void encryptWithFrenchProfile() {
+		Adfgvx cypher = new Adfgvx(SUBSTITUTION_KEY, TRANSPOSITION_KEY).withNormalization(AdfgvxNormalization.FRENCH);
+		assertEquals(cypher.encrypt("COEUR OEUVRE AEQUO"), cypher.encrypt("cœur Œuvre æquo"));
+	}
+	
+	@Test
+	void encryptWithGermanProfile() {
+		Adfgvx cypher = new Adfgvx(SUBSTITUTION_KEY, TRANSPOSITION_KEY).withNormalization(AdfgvxNormalization.GERMAN);
+		assertEquals(cypher.encrypt("GRUESSE AUS KOELN"), cypher.encrypt("Grüße aus Köln"));
+	}
+	
+	@Test
+	void encryptWithSpanishProfile() {
+		Adfgvx cypher = new Adfgvx(SUBSTITUTION_KEY, TRANSPOSITION_KEY).withNormalization(AdfgvxNormalization.SPANISH);
+		assertEquals(cypher.encrypt("ANO ESPANA"), cypher.encrypt("año España"));
+	}
+	
+	@Test
+	void profileAppliesToEveryEncryptPath() {
+		Adfgvx cypher = new Adfgvx(SUBSTITUTION_KEY, TRANSPOSITION_KEY).withNormalization(AdfgvxNormalization.FRENCH);
+		String message = "Æglé et Lætitia";
+		String encrypted = cypher.encrypt(message);
+		assertEquals(encrypted, cypher.encryptBatch(List.of(message)).get(0));
+		ByteBuffer dst = ByteBuffer.allocate(100);
+		cypher.encrypt(ByteBuffer.wrap(message.getBytes(StandardCharsets.ISO_8859_1)), dst);
+		dst.flip();
+		assertEquals(encrypted, StandardCharsets.US_ASCII.decode(dst).toString());
+	}
+	
+	@Test
+	void customMappingsAreNormalized() {
+		AdfgvxNormalization normalization = AdfgvxNormalization.DEFAULT.withMappings(Map.of('&', "et", '#', "", '€', "eur"));
+		assertArrayEquals(new char[] {'E', 'T'}, normalization.normalize('&'));
+		assertArrayEquals(new char[0], normalization.normalize('#'));
+		assertArrayEquals(new char[] {'E', 'U', 'R'}, normalization.normalize('€'));
+		assertArrayEquals(new char[0], AdfgvxNormalization.DEFAULT.normalize('&'));
+	}
+	
+	@Test
+	void longMappingsInFiles() throws IOException {
+		AdfgvxNormalization normalization = AdfgvxNormalization.DEFAULT.withMappings(Map.of('&', "and", '§', "section"));
+		assertEquals(3, AdfgvxNormalization.DEFAULT.getMaxExpansion());
+		assertEquals(7, normalization.getMaxExpansion());
+		Adfgvx cypher = new Adfgvx(SUBSTITUTION_KEY, TRANSPOSITION_KEY).withNormalization(normalization);
+		//Chaque octet du fichier donne trois caractères nettoyés, ou sept pour les deux octets de '§'
+		byte[] content = ("&".repeat(3 * Adfgvx.STREAM_BLOCK_LENGTH) + "§").getBytes(StandardCharsets.UTF_8);
+		Path source = Files.createTempFile("adfgvx", ".txt");
+		Path target = Files.createTempFile("adfgvx", ".adfgvx");
+		try {
+			Files.write(source, content);
+			cypher.encryptFile(source, target);
+			ByteArrayOutputStream expected = new ByteArrayOutputStream();
+			cypher.encrypt(new ByteArrayInputStream(content), expected);
+			byte[] cryptogram = Files.readAllBytes(target);
+			assertArrayEquals(expected.toByteArray(), cryptogram);
+			ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+			cypher.decrypt(new ByteArrayInputStream(cryptogram), decrypted);
+			assertTrue(decrypted.toString(StandardCharsets.US_ASCII).startsWith("AND".repeat(3 * Adfgvx.STREAM_BLOCK_LENGTH) + "SECTION"));
+		}finally {
+			Files.delete(source);
+			Files.delete(target);
+		}
+	}
+	
+	@Test
+	void withNormalizationKeepsKeys() {
+		Adfgvx cypher = new Adfgvx(SUBSTITUTION_KEY, TRANSPOSITION_KEY);
+		Adfgvx french = cypher.withNormalization(AdfgvxNormalization.FRENCH);
+		assertSame(AdfgvxNormalization.DEFAULT, cypher.getNormalization());
+		assertSame(AdfgvxNormalization.FRENCH, french.getNormalization());
+		assertEquals(cypher.encrypt("DEMANDE RENFORTS"), french.encrypt("DEMANDE RENFORTS"));
+		assertThrows(NullPointerException.class, ()->{
+			cypher.withNormalization(null);
+		});
+	}
+}
@@ -0,0 +1,98 @@
+package crypto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdfgvxServerTest {
+	
+	@Test
+	void pipelinedRequests() throws IOException {
+		String requests = "ENCRYPT BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C BRUTES DEMANDE RENFORTS D'URGENCE\n"
+				+ "DECRYPT BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C BRUTES VDFXG-D\n"
+				+ "ENCRYPT BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C BRUTES\n";
+		try(AdfgvxServer server = new AdfgvxServer(0);
+			Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+			OutputStream out = socket.getOutputStream();
+			out.write(requests.getBytes(StandardCharsets.UTF_8));
+			out.flush();
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			assertEquals("OK VDGXX-VVXFV-GVXXX-XDFGD-GDAXX-DGFFG-DXGDG-FXGGG-GXXGV-DGG", in.readLine());
+			assertEquals("OK OUI", in.readLine());
+			assertEquals("OK ", in.readLine());
+		}
+	}
+	
+	@Test
+	void requestTooLong() throws IOException {
+		StringBuilder requests = new StringBuilder("ENCRYPT BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C BRUTES ");
+		while(requests.length() <= AdfgvxServer.MAX_REQUEST_LENGTH) {
+			requests.append("OUI ");
+		}
+		requests.append("\nDECRYPT BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C BRUTES VDFXG-D\r\n");
+		try(AdfgvxServer server = new AdfgvxServer(0, new AdfgvxCache(16), 1);
+			Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+			OutputStream out = socket.getOutputStream();
+			out.write(requests.toString().getBytes(StandardCharsets.UTF_8));
+			out.flush();
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			assertEquals("ERROR request too long", in.readLine());
+			//La requête suivante est lue normalement
+			assertEquals("OK OUI", in.readLine());
+		}
+		assertThrows(IllegalArgumentException.class, () -> new AdfgvxServer(0, new AdfgvxCache(16), 0));
+	}
+	
+	@Test
+	void requestAtLengthLimit() throws IOException {
+		String request = "A".repeat(AdfgvxServer.MAX_REQUEST_LENGTH);
+		StringBuilder buffer = new StringBuilder();
+		//Le retour chariot d'une fin de ligne CRLF ne compte pas dans la longueur de la requête
+		for(String lineEnd : new String[] {"\n", "\r\n"}) {
+			StringReader in = new StringReader(request + lineEnd + "B\r\n");
+			assertEquals(AdfgvxServer.MAX_REQUEST_LENGTH, AdfgvxServer.readRequest(in, buffer));
+			assertEquals(request, buffer.toString());
+			assertEquals(1, AdfgvxServer.readRequest(in, buffer));
+			assertEquals("B", buffer.toString());
+		}
+		//Dernière requête sans fin de ligne avant la fermeture de la connexion
+		assertEquals(AdfgvxServer.MAX_REQUEST_LENGTH, AdfgvxServer.readRequest(new StringReader(request), buffer));
+		for(String lineEnd : new String[] {"\n", "\r\n"}) {
+			StringReader in = new StringReader(request + "A" + lineEnd);
+			assertTrue(AdfgvxServer.readRequest(in, buffer) > AdfgvxServer.MAX_REQUEST_LENGTH);
+			assertEquals(-1, AdfgvxServer.readRequest(in, buffer));
+		}
+	}
+	
+	@Test
+	void invalidKey() throws IOException {
+		try(AdfgvxServer server = new AdfgvxServer(0)) {
+			assertEquals("ERROR invalid key", server.handle("ENCRYPT ABC BRUTES OUI"));
+			assertEquals("ERROR invalid key", server.handle("ENCRYPT BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C BRUTEB OUI"));
+		}
+	}
+	
+	@Test
+	void invalidCryptogram() throws IOException {
+		try(AdfgvxServer server = new AdfgvxServer(0)) {
+			assertEquals("ERROR invalid cryptogram", server.handle("DECRYPT BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C BRUTES ADFGV-XADFG-VXADF"));
+		}
+	}
+	
+	@Test
+	void unknownCommandAndMalformedRequest() throws IOException {
+		try(AdfgvxServer server = new AdfgvxServer(0)) {
+			assertEquals("ERROR unknown command", server.handle("HASH BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C BRUTES OUI"));
+			assertEquals("ERROR malformed request", server.handle("ENCRYPT"));
+		}
+	}
+}
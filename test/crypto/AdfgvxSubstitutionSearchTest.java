@@ -0,0 +1,53 @@
+package crypto;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdfgvxSubstitutionSearchTest {
+	private static final String SUBSTITUTION_KEY = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+	private static final String TRANSPOSITION_KEY = "BRUTES";
+	
+	@Test
+	void findSubstitutionKey() {
+		AdfgvxNgramScorer scorer = new AdfgvxNgramScorer(3, AdfgvxNgramScorerTest.SAMPLE);
+		AdfgvxSubstitutionSearch search = new AdfgvxSubstitutionSearch(TRANSPOSITION_KEY, scorer);
+		Adfgvx cypher = new Adfgvx(SUBSTITUTION_KEY, TRANSPOSITION_KEY);
+		String cryptogram = cypher.encrypt(AdfgvxNgramScorerTest.SAMPLE);
+		AdfgvxSubstitutionSearch.Result result = search.search(cryptogram, 8);
+		assertEquals(cypher.decrypt(cryptogram), result.getPlainText());
+		assertEquals(result.getPlainText(), new Adfgvx(result.getSubstitutionKey(), TRANSPOSITION_KEY).decrypt(cryptogram));
+		assertEquals(scorer.score(result.getPlainText()), result.getScore(), 1e-6);
+	}
+	
+	@Test
+	void searchDoesNotDependOnThreadCount() {
+		AdfgvxNgramScorer scorer = new AdfgvxNgramScorer(2, AdfgvxNgramScorerTest.SAMPLE);
+		AdfgvxSubstitutionSearch search = new AdfgvxSubstitutionSearch(TRANSPOSITION_KEY, scorer);
+		String cryptogram = new Adfgvx(SUBSTITUTION_KEY, TRANSPOSITION_KEY).encrypt("Demande renforts d'urgence au nord de la rivière");
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			assertEquals(search.search(cryptogram, 4).getSubstitutionKey(),
+					search.search(cryptogram, 4, pool).getSubstitutionKey());
+		}finally {
+			pool.shutdown();
+		}
+	}
+	
+	@Test
+	void invalidSearch() {
+		AdfgvxNgramScorer scorer = new AdfgvxNgramScorer(2, AdfgvxNgramScorerTest.SAMPLE);
+		AdfgvxSubstitutionSearch search = new AdfgvxSubstitutionSearch(TRANSPOSITION_KEY, scorer);
+		assertThrows(IllegalArgumentException.class, ()->{
+			search.search("ADFGV-XA", 4);
+		});
+		assertThrows(IllegalArgumentException.class, ()->{
+			search.search("ADFGV-X", 0);
+		});
+		assertThrows(IllegalArgumentException.class, ()->{
+			new AdfgvxSubstitutionSearch("brutes", scorer);
+		});
+	}
+}
@@ -1,5 +1,22 @@
 package crypto;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -139,6 +156,206 @@ public class AdfgvxTest {
 		assertEquals(encrypted, cypher.encrypt(message));
 	}
 	
+	@Test
+	void encryptLongMessage() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		String message = "Il n'y a pas de mauvaise ou bonne situation, vous savez";
+		String encrypted = "DFDGD-DVVGV-VXDDA-XAVDD-GAXDD-VVXGX-XGFGG-XFFGX-XDGFG-DXDFF-GADXF-FFFGX-FFFXV-FGDFG-XVFVX-ADXFD-XDXXD-DDXDX";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		assertEquals(encrypted, cypher.encrypt(message));
+	}
+	
+	@Test
+	void encryptLowerCaseAndAccentedLetters() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		assertEquals(cypher.encrypt("AAAAAACEEEEIIIIOOOOOUUUUYEA"), cypher.encrypt("àáâãäåçèéêëìíîïòóôõöùúûüÿÉÀ"));
+	}
+	
+	@Test
+	void encryptTextLongerOnceCleaned() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		assertEquals(cypher.encrypt("SSSSSSFFI"), cypher.encrypt("ßßßﬃ"));
+		assertEquals(List.of(cypher.encrypt("SSSSSSFFI")), cypher.encryptBatch(List.of("ßßßﬃ")));
+	}
+	
+	@Test
+	void encryptDoesNotDependOnDefaultLocale() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		Locale defaultLocale = Locale.getDefault();
+		try {
+			Locale.setDefault(new Locale("tr", "TR"));
+			assertEquals(cypher.encrypt("DIX"), cypher.encrypt("dix"));
+		}finally {
+			Locale.setDefault(defaultLocale);
+		}
+	}
+	
+	/*
+	 * EXACT LENGTH TESTS
+	 */
+	@Test
+	void encryptIntoArrayMatchesEncrypt() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		String message = "Où êtes-vous ? Reçu l'ordre d'évacuer, ßﬁ";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		String encrypted = cypher.encrypt(message);
+		char[] dst = new char[encrypted.length() + 4];
+		assertEquals(encrypted.length(), cypher.encryptInto(message, dst, 3));
+		assertEquals(encrypted, new String(dst, 3, encrypted.length()));
+		assertEquals(0, dst[0]);
+		assertEquals(0, dst[dst.length - 1]);
+	}
+	
+	@Test
+	void encryptIntoArrayTooSmall() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		char[] dst = new char[cypher.encrypt("DEMANDE").length()];
+		assertThrows(IndexOutOfBoundsException.class, ()->{
+			cypher.encryptInto("DEMANDE", dst, 1);
+		});
+		assertArrayEquals(new char[dst.length], dst);
+	}
+	
+	@Test
+	void encryptIntoCharBufferMatchesEncrypt() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		String encrypted = cypher.encrypt("DEMANDE RENFORTS") + cypher.encrypt("D'URGENCE");
+		CharBuffer heap = CharBuffer.allocate(encrypted.length());
+		cypher.encryptInto("DEMANDE RENFORTS", heap);
+		cypher.encryptInto("D'URGENCE", heap);
+		assertEquals(encrypted, heap.flip().toString());
+		CharBuffer direct = ByteBuffer.allocateDirect(encrypted.length() * 2).asCharBuffer();
+		cypher.encryptInto("DEMANDE RENFORTS", direct);
+		cypher.encryptInto("D'URGENCE", direct);
+		assertEquals(encrypted, direct.flip().toString());
+		assertThrows(BufferOverflowException.class, ()->{
+			cypher.encryptInto("DEMANDE", CharBuffer.allocate(1));
+		});
+	}
+	
+	@Test
+	void ciphertextAndPlaintextLengths() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		for(String transpositionKey : List.of("BRUTES", "ABC", "ZYXWVUTSRQ")) {
+			Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+			StringBuilder message = new StringBuilder();
+			for(int length = 0; length < 100; ++length) {
+				String encrypted = cypher.encrypt(message.toString());
+				assertEquals(encrypted.length(), cypher.ciphertextLength(length));
+				assertEquals(cypher.decrypt(encrypted).length(), cypher.plaintextLength(encrypted.length()));
+				message.append((char) ('A' + length % 26));
+			}
+		}
+		Adfgvx cypher = new Adfgvx(substitutionKey, "BRUTES");
+		assertThrows(IllegalArgumentException.class, ()->{
+			cypher.plaintextLength(8);
+		});
+		assertThrows(IllegalArgumentException.class, ()->{
+			cypher.ciphertextLength(-1);
+		});
+	}
+	
+	/*
+	 * FORMAT TESTS
+	 */
+	@Test
+	void encryptWithoutGrouping() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		String message = "DEMANDE RENFORTS D'URGENCE";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		Adfgvx compact = cypher.withoutGrouping();
+		assertEquals(cypher.encrypt(message).replace("-", ""), compact.encrypt(message));
+		assertEquals(cypher.decrypt(cypher.encrypt(message)), cypher.decrypt(compact.encrypt(message)));
+		assertEquals(0, compact.getGroupSize());
+		ByteBuffer dst = ByteBuffer.allocate(100);
+		compact.encrypt(ByteBuffer.wrap(message.getBytes(StandardCharsets.ISO_8859_1)), dst);
+		assertEquals(compact.encrypt(message), new String(dst.array(), 0, dst.position(), StandardCharsets.US_ASCII));
+	}
+	
+	@Test
+	void encryptWithGrouping() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		String message = "DEMANDE RENFORTS D'URGENCE";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		Adfgvx grouped = cypher.withGrouping(4, ' ');
+		String encrypted = grouped.encrypt(message);
+		assertEquals("VDGX XVVX FVGV XXXX DFGD GDAX XDGF FGDX GDGF XGGG GXXG VDGG", encrypted);
+		assertEquals(cypher.decrypt(cypher.encrypt(message)), cypher.decrypt(encrypted));
+		assertEquals(encrypted.length(), grouped.ciphertextLength(message.length() - 3));
+		assertEquals(cypher.decrypt(encrypted).length(), grouped.plaintextLength(encrypted.length()));
+	}
+	
+	@Test
+	void invalidGrouping() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		assertThrows(IllegalArgumentException.class, ()->{
+			cypher.withGrouping(0, '-');
+		});
+		assertThrows(IllegalArgumentException.class, ()->{
+			cypher.withGrouping(Integer.MAX_VALUE, '-');
+		});
+		Adfgvx largestGroups = cypher.withGrouping(Integer.MAX_VALUE - 1, '-');
+		assertEquals(Integer.MAX_VALUE - 1, largestGroups.getGroupSize());
+		assertEquals(cypher.withoutGrouping().encrypt("DEMANDE RENFORTS"), largestGroups.encrypt("DEMANDE RENFORTS"));
+		assertThrows(IllegalArgumentException.class, ()->{
+			cypher.withGrouping(5, 'X');
+		});
+		assertThrows(IllegalArgumentException.class, ()->{
+			cypher.withGrouping(5, 'é');
+		});
+		for(char separator : new char[] {'A', 'D', 'F', 'G', 'V', 'X', '\n', '\r', '\t', '\0', '\u007F'}) {
+			assertThrows(IllegalArgumentException.class, ()->{
+				cypher.withGrouping(5, separator);
+			});
+		}
+		assertEquals(' ', cypher.withGrouping(5, ' ').getSeparator());
+	}
+	
+	/*
+	 * PADDING TESTS
+	 */
+	@Test
+	void encryptWithRandomPadding() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		for(AdfgvxPadding padding : List.of(AdfgvxPadding.FAST_RANDOM, AdfgvxPadding.SECURE_RANDOM)) {
+			Adfgvx padded = cypher.withPadding(padding);
+			assertEquals(padding, padded.getPadding());
+			String encrypted = padded.encrypt("OUI");
+			assertEquals(cypher.encrypt("OUI").length(), encrypted.length());
+			assertTrue(encrypted.matches("[ADFGVX-]*"));
+			assertTrue(cypher.decrypt(encrypted).startsWith("OUI"));
+			//20 symboles de remplissage : deux cryptogrammes identiques sont improbables
+			assertNotEquals(encrypted, padded.encrypt("OUI"));
+		}
+	}
+	
+	@Test
+	void encryptWithConstantPadding() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		assertEquals(AdfgvxPadding.CONSTANT, cypher.getPadding());
+		assertEquals(cypher.encrypt("OUI"), cypher.withPadding(AdfgvxPadding.FAST_RANDOM).withPadding(AdfgvxPadding.CONSTANT).encrypt("OUI"));
+	}
+	
 	/*
 	 * DECRYPT TESTS
 	 */
@@ -212,4 +429,376 @@ public class AdfgvxTest {
 		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
 		assertEquals(decrypted, cypher.decrypt(message));
 	}
+	
+	@Test
+	void decryptLongCryptogramWithInvalidCharacters() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		StringBuilder message = new StringBuilder();
+		while(message.length() < 3000) {
+			message.append("DEMANDERENFORTSDURGENCE");
+		}
+		String encrypted = cypher.encrypt(message.toString());
+		String decrypted = cypher.decrypt(encrypted);
+		assertTrue(decrypted.startsWith(message.toString()));
+		//Caractères invalides au milieu du cryptogramme, hors du format de encrypt
+		String withInvalidCharacters = encrypted.substring(0, 1000) + " ?é\n" + encrypted.substring(1000).replace('-', ' ');
+		assertEquals(decrypted, cypher.decrypt(withInvalidCharacters));
+	}
+	
+	/*
+	 * BATCH TESTS
+	 */
+	@Test
+	void encryptBatchMatchesEncrypt() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		List<String> messages = List.of("DEMANDE RENFORTS D'URGENCE", "", "éèùîôöë+ÉÂÔÎÜÀÈÊ*ç'ûüùâéèôŸ", "123456789", "OUI");
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		List<String> encrypted = cypher.encryptBatch(messages);
+		assertEquals(messages.size(), encrypted.size());
+		for(int i = 0; i < messages.size(); ++i) {
+			assertEquals(cypher.encrypt(messages.get(i)), encrypted.get(i));
+		}
+	}
+	
+	@Test
+	void decryptBatchMatchesDecrypt() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		List<String> messages = List.of("VDGXX-VVXFV-GVXXX-XDFGD-GDAXX-DGFFG-DXGDG-FXGGG-GXXGV-DGG", "", "VDFXG-D", "ADFGV-X");
+		List<String> decrypted = List.of("DEMANDERENFORTSDURGENCEC", "", "OUI", "L2U");
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		assertEquals(decrypted, cypher.decryptBatch(messages));
+	}
+	
+	@Test
+	void decryptBatchWithInvalidMessage() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		List<String> messages = List.of("VDFXG-D", "ADFGV-XADFG-VXADF");
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		assertThrows(IllegalArgumentException.class, ()->{
+			cypher.decryptBatch(messages);
+		});
+	}
+	
+	@Test
+	void encryptParallelMatchesEncrypt() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		List<String> messages = new ArrayList<String>();
+		for(int i = 0; i < Adfgvx.PARALLEL_SLICE_LENGTH * 5 + 3; ++i) {
+			messages.add("MESSAGE " + i);
+		}
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		List<String> encrypted = cypher.encryptParallel(messages);
+		assertEquals(messages.size(), encrypted.size());
+		for(int i = 0; i < messages.size(); ++i) {
+			assertEquals(cypher.encrypt(messages.get(i)), encrypted.get(i));
+		}
+		assertEquals(cypher.decryptBatch(encrypted), cypher.decryptParallel(encrypted, new ForkJoinPool(3)));
+	}
+	
+	@Test
+	void decryptParallelWithInvalidMessage() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		List<String> messages = new ArrayList<String>(Collections.nCopies(Adfgvx.PARALLEL_SLICE_LENGTH * 2, "VDFXG-D"));
+		messages.add("ADFGV-XADFG-VXADF");
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		assertThrows(IllegalArgumentException.class, ()->{
+			cypher.decryptParallel(messages);
+		});
+	}
+	
+	/*
+	 * BYTE BUFFER TESTS
+	 */
+	@Test
+	void encryptByteBufferExample() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		String message = "DEMANDE RENFORTS D'URGENCE";
+		String encrypted = "VDGXX-VVXFV-GVXXX-XDFGD-GDAXX-DGFFG-DXGDG-FXGGG-GXXGV-DGG";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		ByteBuffer src = ByteBuffer.allocateDirect(message.length());
+		src.put(message.getBytes(StandardCharsets.US_ASCII)).flip();
+		ByteBuffer dst = ByteBuffer.allocateDirect(100);
+		assertEquals(encrypted.length(), cypher.encrypt(src, dst));
+		assertFalse(src.hasRemaining());
+		dst.flip();
+		assertEquals(encrypted, StandardCharsets.US_ASCII.decode(dst).toString());
+	}
+	
+	@Test
+	void encryptByteBufferWithLatin1Diacritics() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		String message = "Straße éèùîôöë+ÉÂÔÎÜÀÈÊ*ç'ûüùâéèô";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		ByteBuffer dst = ByteBuffer.allocate(200);
+		cypher.encrypt(ByteBuffer.wrap(message.getBytes(StandardCharsets.ISO_8859_1)), dst);
+		dst.flip();
+		assertEquals(cypher.encrypt(message), StandardCharsets.US_ASCII.decode(dst).toString());
+	}
+	
+	@Test
+	void encryptByteBufferTooSmall() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		ByteBuffer src = ByteBuffer.wrap("OUI".getBytes(StandardCharsets.US_ASCII));
+		ByteBuffer dst = ByteBuffer.allocate(6);
+		assertThrows(BufferOverflowException.class, ()->{
+			cypher.encrypt(src, dst);
+		});
+		assertEquals(0, src.position());
+		assertEquals(0, dst.position());
+	}
+	
+	@Test
+	void decryptByteBufferExample() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		String message = "VDGXX-VVXFV-GVXXX-XDFGD-GDAXX-DGFFG-DXGDG-FXGGG-GXXGV-DGG";
+		String decrypted = "DEMANDERENFORTSDURGENCEC";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		ByteBuffer dst = ByteBuffer.allocateDirect(decrypted.length());
+		assertEquals(decrypted.length(), cypher.decrypt(ByteBuffer.wrap(message.getBytes(StandardCharsets.US_ASCII)), dst));
+		dst.flip();
+		assertEquals(decrypted, StandardCharsets.US_ASCII.decode(dst).toString());
+	}
+	
+	@Test
+	void decryptByteBufferLengthNotAMultipleOfTranspositionKeyLength() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		ByteBuffer src = ByteBuffer.wrap("ADFGV-XADFG-VXADF".getBytes(StandardCharsets.US_ASCII));
+		assertThrows(IllegalArgumentException.class, ()->{
+			cypher.decrypt(src, ByteBuffer.allocate(100));
+		});
+		assertEquals(0, src.position());
+	}
+	
+	/*
+	 * STREAM TESTS
+	 */
+	@Test
+	void encryptStreamExample() throws IOException {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		String message = "DEMANDE RENFORTS D'URGENCE";
+		String encrypted = "VDGXX-VVXFV-GVXXX-XDFGD-GDAXX-DGFFG-DXGDG-FXGGG-GXXGV-DGG\n";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		StringWriter out = new StringWriter();
+		cypher.encrypt(new StringReader(message), out);
+		assertEquals(encrypted, out.toString());
+	}
+	
+	@Test
+	void encryptStreamEmptyText() throws IOException {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		StringWriter out = new StringWriter();
+		cypher.encrypt(new StringReader("- ' !"), out);
+		assertEquals("", out.toString());
+	}
+	
+	@Test
+	void encryptStreamOneGridPerBlock() throws IOException {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTE";
+		String keyChars = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+		StringBuilder message = new StringBuilder();
+		for(int i = 0; i < Adfgvx.STREAM_BLOCK_LENGTH * 2 + 10; ++i) {
+			message.append(keyChars.charAt(i % keyChars.length()));
+		}
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		StringWriter out = new StringWriter();
+		cypher.encrypt(new StringReader(message.toString()), out);
+		
+		int blockLength = cypher.getStreamBlockLength();
+		StringBuilder expected = new StringBuilder();
+		for(int start = 0; start < message.length(); start += blockLength) {
+			int end = Math.min(message.length(), start + blockLength);
+			expected.append(cypher.encrypt(message.substring(start, end))).append('\n');
+		}
+		assertEquals(expected.toString(), out.toString());
+	}
+	
+	@Test
+	void encryptUtf8Stream() throws IOException {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		String message = "éèùîôöë+ÉÂÔÎÜÀÈÊ*ç'ûüùâéèôŸ";
+		String encrypted ="GDGVD-XDGDV-DDGDG-FGXGF-FXGGG-FFGGG-GGGFG-XGGFF-GVGDG-DDV\n";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		cypher.encrypt(new ByteArrayInputStream(message.getBytes(StandardCharsets.UTF_8)), out);
+		assertEquals(encrypted, out.toString(StandardCharsets.US_ASCII));
+	}
+	
+	@Test
+	void decryptStreamExample() throws IOException {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		String message = "VDGXX-VVXFV-GVXXX-XDFGD-GDAXX-DGFFG-DXGDG-FXGGG-GXXGV-DGG\nVDFXG-D";
+		String decrypted = "DEMANDERENFORTSDURGENCECOUI\n";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		cypher.decrypt(new ByteArrayInputStream(message.getBytes(StandardCharsets.US_ASCII)), out);
+		assertEquals(decrypted, out.toString(StandardCharsets.US_ASCII));
+	}
+	
+	@Test
+	void decryptStreamOfEncryptedStream() throws IOException {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTE";
+		String keyChars = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+		StringBuilder message = new StringBuilder();
+		for(int i = 0; i < Adfgvx.STREAM_BLOCK_LENGTH * 3 + 1; ++i) {
+			message.append(keyChars.charAt(i % keyChars.length()));
+		}
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+		cypher.encrypt(new ByteArrayInputStream(message.toString().getBytes(StandardCharsets.UTF_8)), encrypted);
+		ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+		cypher.decrypt(new ByteArrayInputStream(encrypted.toByteArray()), decrypted);
+		
+		//Seul le remplissage de la dernière rangée du dernier bloc suit le message
+		assertEquals(message + "C\n", decrypted.toString(StandardCharsets.US_ASCII));
+	}
+	
+	@Test
+	void streamBlockLengthFillsTheGrid() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		assertEquals(4095, new Adfgvx(substitutionKey, "BRUTES").getStreamBlockLength());
+		assertEquals(4095, new Adfgvx(substitutionKey, "BRUTE").getStreamBlockLength());
+		assertEquals(4095, new Adfgvx(substitutionKey, "CHARGEONS").getStreamBlockLength());
+		assertEquals(4096, new Adfgvx(substitutionKey, "FEUX").getStreamBlockLength());
+	}
+	
+	@Test
+	void decryptStreamOfEncryptedStreamSixLetterKey() throws IOException {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		String keyChars = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+		StringBuilder message = new StringBuilder();
+		for(int i = 0; i < Adfgvx.STREAM_BLOCK_LENGTH * 2 + 11; ++i) {
+			message.append(keyChars.charAt(i % keyChars.length()));
+		}
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		StringWriter encrypted = new StringWriter();
+		cypher.encrypt(new StringReader(message.toString()), encrypted);
+		assertEquals(3, encrypted.toString().split("\n").length);
+		ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+		cypher.decrypt(new ByteArrayInputStream(encrypted.toString().getBytes(StandardCharsets.US_ASCII)), decrypted);
+		
+		//Le dernier bloc de 13 caractères donne 26 symboles, complétés à 30 par deux caractères
+		String text = decrypted.toString(StandardCharsets.US_ASCII);
+		assertEquals(message.length() + 3, text.length());
+		assertTrue(text.startsWith(message.toString()));
+		assertTrue(text.endsWith("\n"));
+	}
+	
+	@Test
+	void decryptStreamBlockLengthNotAMultipleOfTranspositionKeyLength() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		String message = "VDFXG-D\nADFGV-XADFG-VXADF\n";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		assertThrows(IllegalArgumentException.class, ()->{
+			cypher.decrypt(new ByteArrayInputStream(message.getBytes(StandardCharsets.US_ASCII)), new ByteArrayOutputStream());
+		});
+	}
+	
+	@Test
+	void decryptStreamBlockTooLong() {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		StringBuilder message = new StringBuilder();
+		for(int i = 0; i < Adfgvx.STREAM_BLOCK_LENGTH + 3; ++i) {
+			message.append("ADFGVX");
+		}
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		assertThrows(IllegalArgumentException.class, ()->{
+			cypher.decrypt(new ByteArrayInputStream(message.toString().getBytes(StandardCharsets.US_ASCII)), new ByteArrayOutputStream());
+		});
+	}
+	
+	/*
+	 * FILE TESTS
+	 */
+	@Test
+	void encryptFileAsUtf8Stream() throws IOException {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		StringBuilder text = new StringBuilder();
+		while(text.length() < 3 * Adfgvx.STREAM_BLOCK_LENGTH) {
+			text.append("Demandé renforts d'urgence, Straße \uFB03 € ");
+		}
+		byte[] content = text.toString().getBytes(StandardCharsets.UTF_8);
+		//Octet mal formé, retiré comme le fait encrypt(InputStream, OutputStream)
+		content[content.length / 2] = (byte) 0xFF;
+		Path source = Files.createTempFile("adfgvx", ".txt");
+		Path target = Files.createTempFile("adfgvx", ".adfgvx");
+		try {
+			Files.write(source, content);
+			cypher.encryptFile(source, target);
+			ByteArrayOutputStream expected = new ByteArrayOutputStream();
+			cypher.encrypt(new ByteArrayInputStream(content), expected);
+			assertEquals(expected.toString(StandardCharsets.US_ASCII), Files.readString(target, StandardCharsets.US_ASCII));
+		}finally {
+			Files.delete(source);
+			Files.delete(target);
+		}
+	}
+	
+	@Test
+	void encryptFileEndingWithFullBlock() throws IOException {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "CHARGEONS";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey).withGrouping(4, ' ');
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < 2 * cypher.getStreamBlockLength(); ++i) {
+			text.append((char) ('A' + i % 26));
+		}
+		//Caractères ignorés après le dernier bloc complet, qui n'a pas de remplissage
+		text.append(" ...\n");
+		Path source = Files.createTempFile("adfgvx", ".txt");
+		Path target = Files.createTempFile("adfgvx", ".adfgvx");
+		try {
+			Files.writeString(source, text, StandardCharsets.UTF_8);
+			cypher.encryptFile(source, target);
+			StringWriter expected = new StringWriter();
+			cypher.encrypt(new StringReader(text.toString()), expected);
+			assertEquals(expected.toString(), Files.readString(target, StandardCharsets.US_ASCII));
+			assertEquals(2, expected.toString().split("\n").length);
+		}finally {
+			Files.delete(source);
+			Files.delete(target);
+		}
+	}
+	
+	@Test
+	void encryptFileEmpty() throws IOException {
+		String substitutionKey = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+		String transpositionKey = "BRUTES";
+		Adfgvx cypher = new Adfgvx(substitutionKey, transpositionKey);
+		Path source = Files.createTempFile("adfgvx", ".txt");
+		Path target = Files.createTempFile("adfgvx", ".adfgvx");
+		try {
+			Files.writeString(target, "ANCIEN CONTENU");
+			cypher.encryptFile(source, target);
+			assertEquals(0, Files.size(target));
+		}finally {
+			Files.delete(source);
+			Files.delete(target);
+		}
+	}
 }
@@ -0,0 +1,69 @@
+package crypto;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdfgvxTranspositionSearchTest {
+	private static final String SUBSTITUTION_KEY = "BJLZ4PW7AUVI0H3Y5MK8FEXQGDO16T9NSR2C";
+	private static final String MESSAGE = "Les renforts arrivent demain matin par la route du nord, tenez la position";
+	
+	@Test
+	void findTranspositionKey() {
+		AdfgvxNgramScorer scorer = new AdfgvxNgramScorer(3, AdfgvxNgramScorerTest.SAMPLE);
+		AdfgvxTranspositionSearch search = new AdfgvxTranspositionSearch(SUBSTITUTION_KEY, scorer);
+		Adfgvx cypher = new Adfgvx(SUBSTITUTION_KEY, "BRUTES");
+		String cryptogram = cypher.encrypt(MESSAGE);
+		AdfgvxTranspositionSearch.Result result = search.search(cryptogram, 6);
+		//BRUTES lit ses colonnes dans le même ordre que ACFEBD
+		assertEquals("ACFEBD", result.getTranspositionKey());
+		assertEquals(cypher.decrypt(cryptogram), result.getPlainText());
+		assertEquals(scorer.score(result.getPlainText()), result.getScore());
+	}
+	
+	@Test
+	void searchDoesNotDependOnThreadCount() {
+		AdfgvxNgramScorer scorer = new AdfgvxNgramScorer(2, AdfgvxNgramScorerTest.SAMPLE);
+		AdfgvxTranspositionSearch search = new AdfgvxTranspositionSearch(SUBSTITUTION_KEY, scorer);
+		String cryptogram = new Adfgvx(SUBSTITUTION_KEY, "CHARGE").encrypt(MESSAGE);
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			assertEquals(search.search(cryptogram, 6).getTranspositionKey(),
+					search.search(cryptogram, 6, pool).getTranspositionKey());
+		}finally {
+			pool.shutdown();
+		}
+	}
+	
+	@Test
+	void permutationsInLehmerOrder() {
+		int[] permutation = new int[5];
+		int[] next = new int[5];
+		AdfgvxTranspositionSearch.permutation(0, next);
+		assertArrayEquals(new int[] {0, 1, 2, 3, 4}, next);
+		for(long index = 1; index < 120; ++index) {
+			AdfgvxTranspositionSearch.nextPermutation(next);
+			AdfgvxTranspositionSearch.permutation(index, permutation);
+			assertArrayEquals(permutation, next);
+		}
+		assertArrayEquals(new int[] {4, 3, 2, 1, 0}, next);
+	}
+	
+	@Test
+	void invalidKeyLength() {
+		AdfgvxNgramScorer scorer = new AdfgvxNgramScorer(2, AdfgvxNgramScorerTest.SAMPLE);
+		AdfgvxTranspositionSearch search = new AdfgvxTranspositionSearch(SUBSTITUTION_KEY, scorer);
+		String cryptogram = new Adfgvx(SUBSTITUTION_KEY, "BRUTES").encrypt(MESSAGE);
+		assertThrows(IllegalArgumentException.class, ()->{
+			search.search(cryptogram, 5);
+		});
+		assertThrows(IllegalArgumentException.class, ()->{
+			search.search(cryptogram, AdfgvxTranspositionSearch.MAX_KEY_LENGTH + 1);
+		});
+		assertThrows(IllegalArgumentException.class, ()->{
+			new AdfgvxTranspositionSearch("ABC", scorer);
+		});
+	}
+}